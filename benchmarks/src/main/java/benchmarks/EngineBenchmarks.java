@@ -0,0 +1,94 @@
+package benchmarks;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPiece;
+import chess.ChessPosition;
+import chess.InvalidMoveException;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-position cost of the ChessGame operations the server runs on every MAKE_MOVE
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EngineBenchmarks {
+
+    @Param({"kiwipete", "italian", "queensGambit", "rookEndgame", "pawnEndgame", "queenEndgame"})
+    private String position;
+
+    private ChessGame game;
+    private ChessBoard board;
+    private ChessPosition[] squares;
+    private ChessMove move;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        game = Positions.load(position);
+        board = game.getBoard();
+        List<ChessPosition> occupied = new ArrayList<>();
+        for (int row = 1; row <= 8; row++) {
+            for (int column = 1; column <= 8; column++) {
+                ChessPosition square = new ChessPosition(row, column);
+                ChessPiece piece = board.getPiece(square);
+                if (piece != null && piece.getTeamColor() == game.getTeamTurn()) {
+                    occupied.add(square);
+                    if (move == null && !game.validMoves(square).isEmpty()) {
+                        move = game.validMoves(square).iterator().next();
+                    }
+                }
+            }
+        }
+        squares = occupied.toArray(new ChessPosition[0]);
+    }
+
+    @Benchmark
+    public void pieceMoves(Blackhole blackhole) {
+        for (ChessPosition square : squares) {
+            blackhole.consume(board.getPiece(square).pieceMoves(board, square));
+        }
+    }
+
+    @Benchmark
+    public void validMoves(Blackhole blackhole) {
+        for (ChessPosition square : squares) {
+            blackhole.consume(game.validMoves(square));
+        }
+    }
+
+    @Benchmark
+    public boolean isInCheck() {
+        return game.isInCheck(game.getTeamTurn());
+    }
+
+    @Benchmark
+    public boolean isInCheckmate() {
+        return game.isInCheckmate(game.getTeamTurn());
+    }
+
+    @Benchmark
+    public boolean isInStalemate() {
+        return game.isInStalemate(game.getTeamTurn());
+    }
+
+    /**
+     * A validated makeMove, taken back afterwards so every invocation starts from the
+     * same position
+     */
+    @Benchmark
+    public ChessGame makeMove() throws InvalidMoveException {
+        game.makeMove(move);
+        game.unmakeMove();
+        return game;
+    }
+}
@@ -0,0 +1,29 @@
+package benchmarks;
+
+import chess.ChessGame;
+
+import java.util.Map;
+
+/**
+ * Middlegame and endgame positions the benchmarks run against, as FEN records
+ */
+final class Positions {
+
+    private static final Map<String, String> POSITIONS = Map.of(
+            "kiwipete", "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+            "italian", "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10",
+            "queensGambit", "r1bq1rk1/pp2bppp/2n1pn2/3p4/2PP4/2N2N2/PP2BPPP/R1BQ1RK1 w - - 0 8",
+            "rookEndgame", "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+            "pawnEndgame", "8/5k2/3p4/1p1Pp2p/pP2Pp1P/P4P1K/8/8 b - - 0 40",
+            "queenEndgame", "8/8/4k3/8/2Q5/8/5PK1/8 w - - 0 50");
+
+    private Positions() {}
+
+    static ChessGame load(String name) {
+        String fen = POSITIONS.get(name);
+        if (fen == null) {
+            throw new IllegalArgumentException("Unknown benchmark position: " + name);
+        }
+        return ChessGame.fromFen(fen);
+    }
+}
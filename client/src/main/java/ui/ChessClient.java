@@ -1,11 +1,13 @@
 package ui;
 
 import chess.ChessGame;
+import chess.InvalidMoveException;
 import model.GameData;
 import ui.websocket.ServerFacade;
 import ui.websocket.ServerMessageObserver;
 import websocket.messages.ErrorMessage;
 import websocket.messages.LoadGameMessage;
+import websocket.messages.MoveMadeMessage;
 import websocket.messages.NotificationMessage;
 
 import java.util.Arrays;
@@ -249,6 +251,39 @@ public class ChessClient implements ServerMessageObserver {
         System.out.printf("\n[%s] >>> ", state);
     }
 
+    /**
+     * Plays the move on our copy of the game. If the move is not the next one after our
+     * copy, or does not apply to it, we have missed an update and ask for the whole game.
+     */
+    @Override
+    public void moveMade(MoveMadeMessage message) {
+        if (joinedGameData == null) {
+            return;
+        }
+        ChessGame game = joinedGameData.game();
+        try {
+            if (message.getSequence() != game.getPly() + 1) {
+                throw new InvalidMoveException();
+            }
+            game.makeMove(message.getMove());
+            if (message.getStatus() == MoveMadeMessage.GameStatus.CHECKMATE
+                    || message.getStatus() == MoveMadeMessage.GameStatus.STALEMATE) {
+                game.setTeamTurn(ChessGame.TeamColor.GAME_OVER);
+            }
+            System.out.println(redrawBoard());
+        } catch (InvalidMoveException ex) {
+            try {
+                server.resyncGame(visitorAuthToken, joinedGameData.gameID());
+            } catch (Exception resyncEx) {
+                System.out.println(resyncEx.getMessage());
+            }
+            return;
+        } catch (Exception ex) {
+            System.out.println("Error loading game, please try again.");
+        }
+        System.out.printf("\n[%s] >>> ", state);
+    }
+
     @Override
     public void notify(NotificationMessage message) {
         System.out.println(message.getMessage());
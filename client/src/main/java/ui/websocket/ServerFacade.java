@@ -129,6 +129,14 @@ public class ServerFacade {
         }
     }
 
+    public void resyncGame(String authToken, int gameID) throws Exception {
+        try {
+            ws.connect(authToken, String.valueOf(gameID));
+        } catch (Exception ex) {
+            throw new Exception("Error reloading game, please try again. Enter help if assistance is needed.\n");
+        }
+    }
+
     public void makeMove(int gameID, String... params) throws Exception {
         try {
             ws.makeMove(gameID, params);
@@ -2,10 +2,12 @@ package ui.websocket;
 
 import websocket.messages.ErrorMessage;
 import websocket.messages.LoadGameMessage;
+import websocket.messages.MoveMadeMessage;
 import websocket.messages.NotificationMessage;
 
 public interface ServerMessageObserver {
     void loadGame(LoadGameMessage message);
+    void moveMade(MoveMadeMessage message);
     void notify(NotificationMessage message);
     void notifyError(ErrorMessage message);
 }
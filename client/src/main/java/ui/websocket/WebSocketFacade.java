@@ -4,10 +4,12 @@ import chess.ChessMove;
 import chess.ChessPiece;
 import chess.ChessPosition;
 import com.google.gson.Gson;
+import websocket.commands.ConnectCommand;
 import websocket.commands.MakeMoveCommand;
 import websocket.commands.UserGameCommand;
 import websocket.messages.ErrorMessage;
 import websocket.messages.LoadGameMessage;
+import websocket.messages.MoveMadeMessage;
 import websocket.messages.NotificationMessage;
 import websocket.messages.ServerMessage;
 
@@ -37,6 +39,9 @@ public class WebSocketFacade extends Endpoint {
                         case LOAD_GAME -> {
                             LoadGameMessage loadGameMessage = new Gson().fromJson(message, LoadGameMessage.class);
                             messageObserver.loadGame(loadGameMessage);
+                        } case MOVE_MADE -> {
+                            MoveMadeMessage moveMadeMessage = new Gson().fromJson(message, MoveMadeMessage.class);
+                            messageObserver.moveMade(moveMadeMessage);
                         } case NOTIFICATION -> {
                             NotificationMessage notificationMessage = new Gson().fromJson(message, NotificationMessage.class);
                             messageObserver.notify(notificationMessage);
@@ -59,7 +64,7 @@ public class WebSocketFacade extends Endpoint {
     public void connect(String authToken, String param) throws Exception {
         int gameID = Integer.parseInt(param);
         try {
-            UserGameCommand command = new UserGameCommand(UserGameCommand.CommandType.CONNECT, authToken, gameID);
+            ConnectCommand command = new ConnectCommand(authToken, gameID, true);
             this.session.getBasicRemote().sendText(new Gson().toJson(command));
         } catch (IOException ex) {
             throw new Exception("Error: Unable to connect to game");
@@ -0,0 +1,95 @@
+package client;
+
+import chess.ChessMove;
+import chess.ChessPosition;
+import org.junit.jupiter.api.*;
+import server.Server;
+import ui.ChessClient;
+import websocket.messages.MoveMadeMessage;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+public class ChessClientTests {
+
+    private static Server server;
+    private static String url;
+
+    @BeforeAll
+    public static void init() throws Exception {
+        server = new Server();
+        var port = server.run(0);
+        System.out.println("Started test HTTP server on " + port);
+        url = "http://localhost:" + port;
+        HttpClient.newHttpClient().send(HttpRequest.newBuilder(URI.create(url + "/db")).DELETE().build(),
+                HttpResponse.BodyHandlers.discarding());
+    }
+
+    @AfterAll
+    static void stopServer() {
+        server.stop();
+    }
+
+    @Test
+    @DisplayName("Move Made Played When Next In Sequence")
+    public void moveMadePlayedWhenNextInSequence() throws Exception {
+        ChessClient client = joinedClient("sequence");
+        String start = client.redrawBoard();
+
+        client.moveMade(new MoveMadeMessage(move(2, 5, 4, 5), 1, MoveMadeMessage.GameStatus.IN_PROGRESS));
+        String afterMove = client.redrawBoard();
+        Assertions.assertNotEquals(start, afterMove, "Move with sequence ply+1 not played");
+
+        client.moveMade(new MoveMadeMessage(move(7, 5, 5, 5), 2, MoveMadeMessage.GameStatus.IN_PROGRESS));
+        Assertions.assertNotEquals(afterMove, client.redrawBoard(), "Second move in sequence not played");
+    }
+
+    @Test
+    @DisplayName("Move Made Out Of Sequence Reloads Game")
+    public void moveMadeOutOfSequenceReloadsGame() throws Exception {
+        ChessClient client = joinedClient("resync");
+        String start = client.redrawBoard();
+
+        client.moveMade(new MoveMadeMessage(move(2, 5, 4, 5), 1, MoveMadeMessage.GameStatus.IN_PROGRESS));
+        Assertions.assertNotEquals(start, client.redrawBoard(), "Move with sequence ply+1 not played");
+
+        // The server never saw that move, so the reload brings back the starting position
+        client.moveMade(new MoveMadeMessage(move(7, 5, 5, 5), 3, MoveMadeMessage.GameStatus.IN_PROGRESS));
+        Assertions.assertTrue(awaitBoard(client, start), "Skipped sequence number did not reload the game");
+    }
+
+    private static ChessClient joinedClient(String username) throws Exception {
+        ChessClient client = new ChessClient(url);
+        client.register(username, "password", username + "@mail.com");
+        client.createGame(username);
+        String gameID = String.valueOf(client.listGames().split("\n").length);
+        client.playGame(gameID, "white");
+        Assertions.assertTrue(awaitBoard(client, null), "Joined game never loaded");
+        return client;
+    }
+
+    /*
+     * LOAD_GAME arrives on the websocket thread, so wait for the board to match.
+     */
+    private static boolean awaitBoard(ChessClient client, String expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (System.currentTimeMillis() < deadline) {
+            try {
+                String board = client.redrawBoard();
+                if (expected == null || expected.equals(board)) {
+                    return true;
+                }
+            } catch (Exception ex) {
+                // Not loaded yet
+            }
+            Thread.sleep(10);
+        }
+        return false;
+    }
+
+    private static ChessMove move(int startRow, int startColumn, int endRow, int endColumn) {
+        return new ChessMove(new ChessPosition(startRow, startColumn), new ChessPosition(endRow, endColumn), null);
+    }
+}
@@ -0,0 +1,240 @@
+package dataaccess;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only log of typed records in a memory-mapped file. Each record is framed as
+ * <pre>
+ *     int length | byte type | payload | int CRC32 of type and payload
+ * </pre>
+ * where length counts the type byte and payload. The length is written last, and the
+ * unused tail of the file is zero, so a record cut short by a crash either has length 0
+ * or fails its checksum; replay stops there and the next append overwrites it.
+ * <p>
+ * The file is mapped in full and doubles in size when an append does not fit. Writes land
+ * in the page cache as soon as append returns, so they survive the process dying; they
+ * are forced to disk by force(), which the maintenance thread calls every second.
+ * <p>
+ * Appends, compaction and force are synchronized on the log, so a DAO can hold the log's
+ * monitor to keep its in-memory index in step with the records it appends.
+ */
+class AppendLog implements Closeable {
+
+    /**
+     * Writes the payload of a record
+     */
+    interface RecordWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    /**
+     * Applies one record read back from the log
+     */
+    interface RecordReader {
+        void read(byte type, DataInputStream in) throws IOException;
+    }
+
+    /**
+     * Appends the records that describe the current state, replacing the whole history
+     */
+    interface Snapshot {
+        void writeTo(AppendLog log) throws IOException;
+    }
+
+    private static final Logger LOG = LoggerFactory.getLogger(AppendLog.class);
+    private static final int INITIAL_CAPACITY = 1 << 20;
+    private static final int FRAME_BYTES = 4 + 1 + 4;
+    private static final int MIN_RECORDS_TO_COMPACT = 1024;
+
+    private static final ScheduledExecutorService MAINTENANCE = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "append-log-maintenance");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Path file;
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int position;
+    private int records;
+    private ScheduledFuture<?> maintenance;
+    private boolean closed;
+
+    AppendLog(Path file) throws IOException {
+        this.file = file;
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        open();
+    }
+
+    /**
+     * Passes every intact record to the reader in the order they were appended
+     */
+    synchronized void replay(RecordReader reader) throws IOException {
+        int offset = 0;
+        int count = 0;
+        while (offset + FRAME_BYTES <= buffer.capacity()) {
+            int length = buffer.getInt(offset);
+            if (length <= 0 || offset + 4 + length + 4 > buffer.capacity()) {
+                break;
+            }
+            byte[] record = new byte[length];
+            buffer.get(offset + 4, record);
+            if (checksum(record) != buffer.getInt(offset + 4 + length)) {
+                // A torn write; clear it so later appends are not mistaken for it
+                for (int i = offset; i < offset + 4 + length + 4; i++) {
+                    buffer.put(i, (byte) 0);
+                }
+                break;
+            }
+            reader.read(record[0], new DataInputStream(new ByteArrayInputStream(record, 1, length - 1)));
+            offset += 4 + length + 4;
+            count++;
+        }
+        position = offset;
+        records = count;
+    }
+
+    synchronized void append(byte type, RecordWriter payload) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        bytes.write(type);
+        payload.write(new DataOutputStream(bytes));
+        byte[] record = bytes.toByteArray();
+
+        int needed = position + 4 + record.length + 4;
+        if (needed + 4 > buffer.capacity()) {
+            grow(needed + 4);
+        }
+        buffer.put(position + 4, record);
+        buffer.putInt(position + 4 + record.length, checksum(record));
+        buffer.putInt(position, record.length);
+        position = needed;
+        records++;
+    }
+
+    /**
+     * @return the number of records in the log, live or superseded
+     */
+    synchronized int records() {
+        return records;
+    }
+
+    synchronized void force() {
+        buffer.force();
+    }
+
+    /**
+     * Replaces the log with the records the snapshot writes. The snapshot is written to a
+     * new file that is renamed over this one only once it is complete and on disk.
+     */
+    synchronized void compact(Snapshot snapshot) throws IOException {
+        Path compacted = file.resolveSibling(file.getFileName() + ".compact");
+        Files.deleteIfExists(compacted);
+        try (AppendLog target = new AppendLog(compacted)) {
+            snapshot.writeTo(target);
+            target.force();
+        }
+        channel.close();
+        Files.move(compacted, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        open();
+        replay((type, in) -> { });
+    }
+
+    /**
+     * Forces the log to disk every second, and compacts it once it holds more than twice
+     * the records needed to describe the current state
+     *
+     * @param liveRecords the number of records a snapshot would write
+     */
+    synchronized void scheduleMaintenance(IntSupplier liveRecords, Snapshot snapshot) {
+        maintenance = MAINTENANCE.scheduleWithFixedDelay(() -> {
+            try {
+                synchronized (this) {
+                    if (closed) {
+                        return;
+                    }
+                    force();
+                    if (records > MIN_RECORDS_TO_COMPACT && records > 2 * liveRecords.getAsInt()) {
+                        compact(snapshot);
+                    }
+                }
+            } catch (IOException | RuntimeException ex) {
+                LOG.warn("Unable to maintain {}", file, ex);
+            }
+        }, 1, 1, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Cancels maintenance, forces the log to disk and closes it
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (maintenance != null) {
+            maintenance.cancel(false);
+        }
+        buffer.force();
+        channel.close();
+    }
+
+    private void open() throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        int capacity = (int) Math.max(channel.size(), INITIAL_CAPACITY);
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+    }
+
+    /*
+     * Extending the mapping past the end of the file grows the file, and the new bytes
+     * read as zero.
+     */
+    private void grow(int minimum) throws IOException {
+        long capacity = buffer.capacity();
+        while (capacity < minimum) {
+            capacity *= 2;
+        }
+        if (capacity > Integer.MAX_VALUE) {
+            throw new IOException("Log file " + file + " is full");
+        }
+        buffer.force();
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+    }
+
+    private static int checksum(byte[] record) {
+        CRC32 crc = new CRC32();
+        crc.update(record);
+        return (int) crc.getValue();
+    }
+
+    static void writeNullableString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    static String readNullableString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
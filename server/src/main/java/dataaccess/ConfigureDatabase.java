@@ -1,6 +1,9 @@
 package dataaccess;
 
 import java.sql.SQLException;
+import java.sql.Statement;
+
+import static java.sql.Types.NULL;
 
 public class ConfigureDatabase {
 
@@ -19,16 +22,30 @@ public class ConfigureDatabase {
         }
     }
 
-    public static void executeUpdate(String statement, Object... params) throws DataAccessException {
+    /**
+     * Runs an insert, update or delete with the given parameters bound in order. Strings,
+     * integers, byte arrays and nulls are supported. The statement is prepared once per
+     * pooled connection and reused after that.
+     *
+     * @return the key generated by an insert into an AUTO_INCREMENT table, otherwise 0
+     */
+    public static int executeUpdate(String statement, Object... params) throws DataAccessException {
         try (var conn = DatabaseManager.getConnection()) {
-            try (var ps = conn.prepareStatement(statement)) {
+            try (var ps = conn.prepareStatement(statement, Statement.RETURN_GENERATED_KEYS)) {
                 for (var i = 0; i < params.length; i++) {
                     var param = params[i];
-                    if (param instanceof String p) {
-                        ps.setString(i + 1, p);
-                    }
+                    if (param instanceof String p) {ps.setString(i + 1, p);}
+                    else if (param instanceof Integer p) {ps.setInt(i + 1, p);}
+                    else if (param instanceof byte[] p) {ps.setBytes(i + 1, p);}
+                    else if (param == null) {ps.setNull(i + 1, NULL);}
                 }
                 ps.executeUpdate();
+                try (var rs = ps.getGeneratedKeys()) {
+                    if (rs.next()) {
+                        return rs.getInt(1);
+                    }
+                }
+                return 0;
             }
         } catch (SQLException ex) {
             throw new DataAccessException(String.format("Unable to access database: %s", ex.getMessage()));
@@ -0,0 +1,306 @@
+package dataaccess;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded pool of MySQL connections. At most maxSize connections are open or lent out
+ * at once; callers beyond that wait up to maxWait for one to be returned. Connections
+ * handed out are proxies whose close() returns the real connection to the pool, so DAOs
+ * keep using try-with-resources unchanged.
+ * <p>
+ * Idle connections are reused most recently returned first, checked with isValid()
+ * when they have sat unused for longer than validationInterval, and closed by a
+ * background sweep once idle for longer than idleTimeout.
+ * <p>
+ * Each connection keeps a {@link StatementCache}, so prepareStatement(sql) and
+ * prepareStatement(sql, autoGeneratedKeys) reuse a statement the connection has prepared
+ * before. Connections are opened with server-side prepared statements, so a cached
+ * statement is parsed and planned by MySQL only once.
+ */
+class ConnectionPool {
+
+    /**
+     * Pool settings read from db.properties, all optional
+     */
+    record Settings(int maxSize, long maxWaitMillis, long idleTimeoutMillis, long validationIntervalMillis,
+                    int validationTimeoutSeconds, int statementCacheSize) {
+        static final Settings DEFAULT = new Settings(10, 5_000, 300_000, 30_000, 2, 32);
+    }
+
+    /**
+     * Opens a new physical connection for the pool
+     */
+    interface Connector {
+        Connection connect() throws SQLException;
+    }
+
+    private final Connector connector;
+    private final Settings settings;
+    private final ScheduledExecutorService evictor;
+
+    private final Semaphore permits;
+    private final ConcurrentLinkedDeque<IdleConnection> idle = new ConcurrentLinkedDeque<>();
+    private final AtomicInteger open = new AtomicInteger();
+    private final LongAdder borrows = new LongAdder();
+    private final LongAdder waits = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final LongAdder created = new LongAdder();
+    private final LongAdder evicted = new LongAdder();
+    private volatile boolean closed;
+
+    ConnectionPool(String url, String user, String password, String catalog, Settings settings) {
+        this(() -> {
+            Connection connection = DriverManager.getConnection(withServerPrepStmts(url), user, password);
+            connection.setCatalog(catalog);
+            return connection;
+        }, settings);
+    }
+
+    ConnectionPool(Connector connector, Settings settings) {
+        this.connector = connector;
+        this.settings = settings;
+        this.permits = new Semaphore(settings.maxSize(), true);
+
+        evictor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "connection-pool-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(settings.idleTimeoutMillis() / 2, 1_000);
+        evictor.scheduleWithFixedDelay(this::evictIdle, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Lends out a connection, waiting for one to be returned if the pool is at its limit.
+     * Closing the returned connection gives it back to the pool.
+     */
+    Connection borrow() throws DataAccessException {
+        borrows.increment();
+        if (!permits.tryAcquire()) {
+            waitForPermit();
+        }
+        try {
+            PooledConnection pooled = takeIdle();
+            if (pooled == null) {
+                Connection connection = connector.connect();
+                pooled = new PooledConnection(connection, new StatementCache(connection, settings.statementCacheSize()));
+                open.incrementAndGet();
+                created.increment();
+            }
+            return lend(pooled);
+        } catch (SQLException e) {
+            permits.release();
+            throw new DataAccessException(e.getMessage());
+        } catch (RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Stops the idle sweep and closes the idle connections. Connections still lent out
+     * are closed when they are returned.
+     */
+    void close() {
+        closed = true;
+        evictor.shutdownNow();
+        IdleConnection candidate;
+        while ((candidate = idle.pollFirst()) != null) {
+            discard(candidate.pooled());
+        }
+    }
+
+    PoolStats stats() {
+        return new PoolStats(open.get(), idle.size(), borrows.sum(), waits.sum(), timeouts.sum(),
+                TimeUnit.NANOSECONDS.toMillis(totalWaitNanos.sum()),
+                TimeUnit.NANOSECONDS.toMillis(maxWaitNanos.get()), created.sum(), evicted.sum());
+    }
+
+    private void waitForPermit() throws DataAccessException {
+        long start = System.nanoTime();
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(settings.maxWaitMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DataAccessException("Interrupted while waiting for a database connection");
+        }
+        long waited = System.nanoTime() - start;
+        waits.increment();
+        totalWaitNanos.add(waited);
+        maxWaitNanos.accumulateAndGet(waited, Math::max);
+        if (!acquired) {
+            timeouts.increment();
+            throw new DataAccessException(String.format(
+                    "Timed out after %d ms waiting for a database connection", settings.maxWaitMillis()));
+        }
+    }
+
+    /**
+     * @return the most recently returned idle connection that is still usable, or null
+     */
+    private PooledConnection takeIdle() {
+        IdleConnection candidate;
+        while ((candidate = idle.pollFirst()) != null) {
+            long idleMillis = System.currentTimeMillis() - candidate.returnedAt();
+            if (idleMillis > settings.idleTimeoutMillis()
+                    || (idleMillis > settings.validationIntervalMillis() && !isValid(candidate.pooled().connection()))) {
+                discard(candidate.pooled());
+                continue;
+            }
+            return candidate.pooled();
+        }
+        return null;
+    }
+
+    private boolean isValid(Connection connection) {
+        try {
+            return connection.isValid(settings.validationTimeoutSeconds());
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void giveBack(PooledConnection pooled) {
+        Connection connection = pooled.connection();
+        try {
+            if (connection.isClosed()) {
+                open.decrementAndGet();
+            } else if (closed) {
+                discard(pooled);
+            } else {
+                if (!connection.getAutoCommit()) {
+                    connection.rollback();
+                    connection.setAutoCommit(true);
+                }
+                IdleConnection returned = new IdleConnection(pooled, System.currentTimeMillis());
+                idle.addFirst(returned);
+                if (closed && idle.removeFirstOccurrence(returned)) {
+                    discard(pooled);
+                }
+            }
+        } catch (SQLException e) {
+            discard(pooled);
+        } finally {
+            permits.release();
+        }
+    }
+
+    /*
+     * The oldest idle connections sit at the tail of the deque, so the sweep can stop
+     * at the first one that is still fresh.
+     */
+    void evictIdle() {
+        long cutoff = System.currentTimeMillis() - settings.idleTimeoutMillis();
+        Iterator<IdleConnection> oldestFirst = idle.descendingIterator();
+        while (oldestFirst.hasNext()) {
+            IdleConnection candidate = oldestFirst.next();
+            if (candidate.returnedAt() > cutoff) {
+                break;
+            }
+            if (idle.removeFirstOccurrence(candidate)) {
+                discard(candidate.pooled());
+                evicted.increment();
+            }
+        }
+    }
+
+    private void discard(PooledConnection pooled) {
+        open.decrementAndGet();
+        pooled.statements().close();
+        try {
+            pooled.connection().close();
+        } catch (SQLException ignored) {
+            // Already unusable; nothing more to release
+        }
+    }
+
+    /**
+     * Adds useServerPrepStmts=true to a JDBC URL, after any query parameters it already has
+     */
+    static String withServerPrepStmts(String url) {
+        return url + (url.indexOf('?') >= 0 ? "&" : "?") + "useServerPrepStmts=true";
+    }
+
+    private Connection lend(PooledConnection pooled) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, new Lease(pooled));
+    }
+
+    private record PooledConnection(Connection connection, StatementCache statements) {}
+
+    private record IdleConnection(PooledConnection pooled, long returnedAt) {}
+
+    /**
+     * Forwards every call to the pooled connection until close(), which returns it to
+     * the pool instead of closing it. Statements without extra options come from the
+     * connection's statement cache. A lease cannot be used after it is closed.
+     */
+    private class Lease implements InvocationHandler {
+        private PooledConnection pooled;
+
+        Lease(PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close" -> {
+                    if (pooled != null) {
+                        PooledConnection returned = pooled;
+                        pooled = null;
+                        giveBack(returned);
+                    }
+                    return null;
+                }
+                case "isClosed" -> {
+                    return pooled == null || pooled.connection().isClosed();
+                }
+                case "equals" -> {
+                    return proxy == args[0];
+                }
+                case "hashCode" -> {
+                    return System.identityHashCode(proxy);
+                }
+                default -> {
+                    if (pooled == null) {
+                        throw new SQLException("Connection has been returned to the pool");
+                    }
+                    if (method.getName().equals("prepareStatement") && isCacheable(method)) {
+                        int autoGeneratedKeys = args.length > 1 ? (Integer) args[1] : Statement.NO_GENERATED_KEYS;
+                        return pooled.statements().prepare((String) args[0], autoGeneratedKeys);
+                    }
+                    try {
+                        return method.invoke(pooled.connection(), args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                }
+            }
+        }
+
+        private static boolean isCacheable(Method method) {
+            Class<?>[] types = method.getParameterTypes();
+            return types.length == 1 || (types.length == 2 && types[1] == int.class);
+        }
+    }
+}
@@ -8,6 +8,7 @@ public class DatabaseManager {
     private static final String USER;
     private static final String PASSWORD;
     private static final String CONNECTION_URL;
+    private static final ConnectionPool POOL;
 
     /*
      * Load the database information for the db.properties file.
@@ -27,20 +28,38 @@ public class DatabaseManager {
                 var host = props.getProperty("db.host");
                 var port = Integer.parseInt(props.getProperty("db.port"));
                 CONNECTION_URL = String.format("jdbc:mysql://%s:%d", host, port);
+                POOL = new ConnectionPool(CONNECTION_URL, USER, PASSWORD, DATABASE_NAME, poolSettings(props));
             }
         } catch (Exception ex) {
             throw new RuntimeException("unable to process db.properties. " + ex.getMessage());
         }
     }
 
+    /*
+     * Pool settings are optional; any that are missing keep their defaults.
+     */
+    private static ConnectionPool.Settings poolSettings(Properties props) {
+        var defaults = ConnectionPool.Settings.DEFAULT;
+        return new ConnectionPool.Settings(
+                Integer.parseInt(props.getProperty("db.pool.maxSize", String.valueOf(defaults.maxSize()))),
+                Long.parseLong(props.getProperty("db.pool.maxWaitMs", String.valueOf(defaults.maxWaitMillis()))),
+                Long.parseLong(props.getProperty("db.pool.idleTimeoutMs", String.valueOf(defaults.idleTimeoutMillis()))),
+                Long.parseLong(props.getProperty("db.pool.validationIntervalMs",
+                        String.valueOf(defaults.validationIntervalMillis()))),
+                Integer.parseInt(props.getProperty("db.pool.validationTimeoutSeconds",
+                        String.valueOf(defaults.validationTimeoutSeconds()))),
+                Integer.parseInt(props.getProperty("db.pool.statementCacheSize",
+                        String.valueOf(defaults.statementCacheSize()))));
+    }
+
     /**
      * Creates the database if it does not already exist.
      */
     static void createDatabase() throws DataAccessException {
         try {
             var statement = "CREATE DATABASE IF NOT EXISTS " + DATABASE_NAME;
-            var conn = DriverManager.getConnection(CONNECTION_URL, USER, PASSWORD);
-            try (var preparedStatement = conn.prepareStatement(statement)) {
+            try (var conn = DriverManager.getConnection(CONNECTION_URL, USER, PASSWORD);
+                 var preparedStatement = conn.prepareStatement(statement)) {
                 preparedStatement.executeUpdate();
             }
         } catch (SQLException e) {
@@ -49,9 +68,10 @@ public class DatabaseManager {
     }
 
     /**
-     * Create a connection to the database and sets the catalog based upon the
+     * Borrows a connection from the pool, with the catalog set based upon the
      * properties specified in db.properties. Connections to the database should
-     * be short-lived, and you must close the connection when you are done with it.
+     * be short-lived, and you must close the connection when you are done with it;
+     * closing it returns it to the pool.
      * The easiest way to do that is with a try-with-resource block.
      * <br/>
      * <code>
@@ -61,12 +81,13 @@ public class DatabaseManager {
      * </code>
      */
     static Connection getConnection() throws DataAccessException {
-        try {
-            var conn = DriverManager.getConnection(CONNECTION_URL, USER, PASSWORD);
-            conn.setCatalog(DATABASE_NAME);
-            return conn;
-        } catch (SQLException e) {
-            throw new DataAccessException(e.getMessage());
-        }
+        return POOL.borrow();
+    }
+
+    /**
+     * @return the connection pool's current size, wait times and eviction counts
+     */
+    public static PoolStats getPoolStats() {
+        return POOL.stats();
     }
 }
@@ -0,0 +1,103 @@
+package dataaccess;
+
+import model.AuthData;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps auth tokens in memory, indexed by token, and records every change in an
+ * {@link AppendLog} that is replayed when the server starts
+ */
+public class FileAuthDAO implements AuthDAO, Closeable {
+
+    private static final byte PUT_AUTH = 1;
+    private static final byte DELETE_AUTH = 2;
+    private static final byte CLEAR = 3;
+
+    private final ConcurrentHashMap<String, AuthData> authByToken = new ConcurrentHashMap<>();
+    private final AppendLog log;
+
+    public FileAuthDAO(Path directory) {
+        try {
+            log = new AppendLog(directory.resolve("auth.log"));
+            log.replay(this::apply);
+        } catch (IOException e) {
+            throw new RuntimeException(new DataAccessException("Unable to open auth log: " + e.getMessage()));
+        }
+        log.scheduleMaintenance(authByToken::size, target -> {
+            for (AuthData authData : authByToken.values()) {
+                target.append(PUT_AUTH, out -> writeAuth(out, authData));
+            }
+        });
+    }
+
+    public AuthData createAuth(String username) throws DataAccessException {
+        AuthData authData = new AuthData(UUID.randomUUID().toString(), username);
+        try {
+            synchronized (log) {
+                log.append(PUT_AUTH, out -> writeAuth(out, authData));
+                authByToken.put(authData.authToken(), authData);
+            }
+        } catch (IOException e) {
+            throw new DataAccessException(String.format("Unable to write data: %s", e.getMessage()));
+        }
+        return authData;
+    }
+
+    public AuthData getAuth(String authToken) {
+        return authToken == null ? null : authByToken.get(authToken);
+    }
+
+    public void deleteAuth(AuthData authData) throws DataAccessException {
+        try {
+            synchronized (log) {
+                log.append(DELETE_AUTH, out -> out.writeUTF(authData.authToken()));
+                authByToken.remove(authData.authToken());
+            }
+        } catch (IOException e) {
+            throw new DataAccessException(String.format("Unable to write data: %s", e.getMessage()));
+        }
+    }
+
+    public void clearAuth() throws DataAccessException {
+        try {
+            synchronized (log) {
+                log.append(CLEAR, out -> { });
+                authByToken.clear();
+            }
+        } catch (IOException e) {
+            throw new DataAccessException(String.format("Unable to write data: %s", e.getMessage()));
+        }
+    }
+
+    /**
+     * Stops maintaining the log and closes it
+     */
+    @Override
+    public void close() throws IOException {
+        log.close();
+    }
+
+    private void apply(byte type, DataInputStream in) throws IOException {
+        switch (type) {
+            case PUT_AUTH -> {
+                AuthData authData = new AuthData(in.readUTF(), in.readUTF());
+                authByToken.put(authData.authToken(), authData);
+            }
+            case DELETE_AUTH -> authByToken.remove(in.readUTF());
+            case CLEAR -> authByToken.clear();
+            default -> throw new IOException("Unknown auth record type " + type);
+        }
+    }
+
+    private static void writeAuth(DataOutputStream out, AuthData authData) throws IOException {
+        out.writeUTF(authData.authToken());
+        out.writeUTF(authData.username());
+    }
+}
@@ -0,0 +1,266 @@
+package dataaccess;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.PositionCodec;
+import model.AuthData;
+import model.GameData;
+import result.ListResult;
+
+import java.io.DataInputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps games in memory, indexed by gameID, and records every change in an
+ * {@link AppendLog} that is replayed when the server starts. A move is logged as its
+ * 2-byte encoding and replayed onto the game, like the gameMoves table of MySqlGameDAO;
+ * compaction folds each game's moves into a single record of its current position. The
+ * moves of one appendMoves call share a record, so a batch is replayed whole or not at
+ * all and a retried batch is never applied on top of part of itself.
+ * <p>
+ * The games kept here are copies that only change under the log's monitor, together
+ * with the records describing the change, and callers only ever get copies of them. A
+ * compaction therefore sees exactly the moves that have been logged, never a move a
+ * caller is still making.
+ */
+public class FileGameDAO implements GameDAO, Closeable {
+
+    private static final byte PUT_GAME = 1;
+    private static final byte PLAYER = 2;
+    private static final byte POSITION = 3;
+    // Only replayed; logs written before batches had a record of their own hold these
+    private static final byte MOVE = 4;
+    private static final byte CLEAR = 5;
+    private static final byte MOVES = 6;
+
+    private final AtomicInteger nextID = new AtomicInteger(1);
+    private final ConcurrentHashMap<Integer, GameData> gamesByID = new ConcurrentHashMap<>();
+    private final AppendLog log;
+
+    public FileGameDAO(Path directory) {
+        try {
+            log = new AppendLog(directory.resolve("games.log"));
+            log.replay(this::apply);
+        } catch (IOException e) {
+            throw new RuntimeException(new DataAccessException("Unable to open game log: " + e.getMessage()));
+        }
+        log.scheduleMaintenance(gamesByID::size, this::writeSnapshot);
+    }
+
+    public GameData create(String gameName) throws DataAccessException {
+        try {
+            synchronized (log) {
+                GameData gameData = new GameData(nextID.getAndIncrement(), null, null, gameName, new ChessGame());
+                log.append(PUT_GAME, out -> writeGame(out, gameData));
+                gamesByID.put(gameData.gameID(), gameData);
+                return copyOf(gameData);
+            }
+        } catch (IOException e) {
+            throw new DataAccessException(String.format("Unable to write data: %s", e.getMessage()));
+        }
+    }
+
+    public GameData getGame(int gameID) {
+        GameData gameData = gamesByID.get(gameID);
+        return gameData == null ? null : copyOf(gameData);
+    }
+
+    /**
+     * Sets or clears a player when playerColor is WHITE or BLACK, otherwise stores the
+     * position of the game in gameData
+     */
+    public int updateGame(GameData gameData, AuthData authData,
+                          ChessGame.TeamColor playerColor) throws DataAccessException {
+        int gameID = gameData.gameID();
+        String username = authData == null ? null : authData.username();
+        try {
+            synchronized (log) {
+                if (!gamesByID.containsKey(gameID)) {
+                    return 0;
+                }
+                if (playerColor == ChessGame.TeamColor.WHITE || playerColor == ChessGame.TeamColor.BLACK) {
+                    log.append(PLAYER, out -> {
+                        out.writeInt(gameID);
+                        out.writeByte(playerColor.ordinal());
+                        AppendLog.writeNullableString(out, username);
+                    });
+                    setPlayer(gameID, playerColor, username);
+                } else {
+                    byte[] position = PositionCodec.encode(gameData.game());
+                    log.append(POSITION, out -> {
+                        out.writeInt(gameID);
+                        out.write(position);
+                    });
+                    setGame(gameID, PositionCodec.decode(position));
+                }
+            }
+        } catch (IOException e) {
+            throw new DataAccessException(String.format("Unable to write data: %s", e.getMessage()));
+        }
+        return 0;
+    }
+
+    public void appendMove(GameData gameData, ChessMove move) throws DataAccessException {
+        appendMoves(gameData, List.of(move));
+    }
+
+    /**
+     * Logs moves made on a game. The game in gameData must already reflect them.
+     */
+    public void appendMoves(GameData gameData, List<ChessMove> moves) throws DataAccessException {
+        if (moves.isEmpty()) {
+            return;
+        }
+        int gameID = gameData.gameID();
+        short[] encoded = new short[moves.size()];
+        try {
+            for (int i = 0; i < encoded.length; i++) {
+                encoded[i] = (short) moves.get(i).encode();
+            }
+        } catch (RuntimeException ex) {
+            throw new DataAccessException(String.format("Unable to encode move: %s", ex.getMessage()));
+        }
+        byte[] position = PositionCodec.encode(gameData.game());
+        try {
+            synchronized (log) {
+                if (!gamesByID.containsKey(gameID)) {
+                    return;
+                }
+                log.append(MOVES, out -> {
+                    out.writeInt(gameID);
+                    out.writeShort(encoded.length);
+                    for (short move : encoded) {
+                        out.writeShort(move);
+                    }
+                });
+                setGame(gameID, PositionCodec.decode(position));
+            }
+        } catch (IOException e) {
+            throw new DataAccessException(String.format("Unable to write data: %s", e.getMessage()));
+        }
+    }
+
+    public Collection<ListResult> listGames() {
+        Collection<ListResult> list = new ArrayList<>(gamesByID.size());
+        for (GameData gameData : gamesByID.values()) {
+            list.add(new ListResult(gameData.gameID(),
+                    gameData.whiteUsername(), gameData.blackUsername(), gameData.gameName()));
+        }
+        return list;
+    }
+
+    public void clearGame() throws DataAccessException {
+        try {
+            synchronized (log) {
+                log.append(CLEAR, out -> { });
+                gamesByID.clear();
+                nextID.set(1);
+            }
+        } catch (IOException e) {
+            throw new DataAccessException(String.format("Unable to write data: %s", e.getMessage()));
+        }
+    }
+
+    /**
+     * Stops maintaining the log and closes it
+     */
+    @Override
+    public void close() throws IOException {
+        log.close();
+    }
+
+    /**
+     * Compacts the log now rather than waiting for maintenance to
+     */
+    void compact() throws IOException {
+        log.compact(this::writeSnapshot);
+    }
+
+    private void writeSnapshot(AppendLog target) throws IOException {
+        for (GameData gameData : gamesByID.values()) {
+            target.append(PUT_GAME, out -> writeGame(out, gameData));
+        }
+    }
+
+    private void setPlayer(int gameID, ChessGame.TeamColor playerColor, String username) {
+        gamesByID.computeIfPresent(gameID, (id, stored) -> playerColor == ChessGame.TeamColor.WHITE
+                ? stored.setWhiteUsername(username) : stored.setBlackUsername(username));
+    }
+
+    private void setGame(int gameID, ChessGame game) {
+        gamesByID.computeIfPresent(gameID, (id, stored) ->
+                new GameData(id, stored.whiteUsername(), stored.blackUsername(), stored.gameName(), game));
+    }
+
+    private void apply(byte type, DataInputStream in) throws IOException {
+        switch (type) {
+            case PUT_GAME -> {
+                int gameID = in.readInt();
+                String gameName = in.readUTF();
+                String whiteUsername = AppendLog.readNullableString(in);
+                String blackUsername = AppendLog.readNullableString(in);
+                ChessGame game = readPosition(in);
+                gamesByID.put(gameID, new GameData(gameID, whiteUsername, blackUsername, gameName, game));
+                nextID.accumulateAndGet(gameID + 1, Math::max);
+            }
+            case PLAYER -> {
+                int gameID = in.readInt();
+                ChessGame.TeamColor playerColor = ChessGame.TeamColor.values()[in.readByte()];
+                setPlayer(gameID, playerColor, AppendLog.readNullableString(in));
+            }
+            case POSITION -> {
+                int gameID = in.readInt();
+                setGame(gameID, readPosition(in));
+            }
+            case MOVE -> {
+                GameData gameData = gamesByID.get(in.readInt());
+                ChessMove move = ChessMove.decode(in.readShort());
+                if (gameData != null) {
+                    gameData.game().applyMove(move);
+                }
+            }
+            case MOVES -> {
+                GameData gameData = gamesByID.get(in.readInt());
+                int count = in.readUnsignedShort();
+                for (int i = 0; i < count; i++) {
+                    ChessMove move = ChessMove.decode(in.readShort());
+                    if (gameData != null) {
+                        gameData.game().applyMove(move);
+                    }
+                }
+            }
+            case CLEAR -> {
+                gamesByID.clear();
+                nextID.set(1);
+            }
+            default -> throw new IOException("Unknown game record type " + type);
+        }
+    }
+
+    private static GameData copyOf(GameData gameData) {
+        return new GameData(gameData.gameID(), gameData.whiteUsername(), gameData.blackUsername(),
+                gameData.gameName(), PositionCodec.decode(PositionCodec.encode(gameData.game())));
+    }
+
+    private static ChessGame readPosition(DataInputStream in) throws IOException {
+        byte[] position = new byte[PositionCodec.SIZE];
+        in.readFully(position);
+        return PositionCodec.decode(position);
+    }
+
+    private static void writeGame(DataOutputStream out, GameData gameData) throws IOException {
+        out.writeInt(gameData.gameID());
+        out.writeUTF(gameData.gameName());
+        AppendLog.writeNullableString(out, gameData.whiteUsername());
+        AppendLog.writeNullableString(out, gameData.blackUsername());
+        out.write(PositionCodec.encode(gameData.game()));
+    }
+}
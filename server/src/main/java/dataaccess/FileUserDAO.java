@@ -0,0 +1,97 @@
+package dataaccess;
+
+import model.UserData;
+import org.mindrot.jbcrypt.BCrypt;
+import request.RegisterRequest;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps users in memory, indexed by username, and records every change in an
+ * {@link AppendLog} that is replayed when the server starts
+ */
+public class FileUserDAO implements UserDAO, Closeable {
+
+    private static final byte PUT_USER = 1;
+    private static final byte CLEAR = 2;
+
+    private final ConcurrentHashMap<String, UserData> usersByUsername = new ConcurrentHashMap<>();
+    private final AppendLog log;
+
+    public FileUserDAO(Path directory) {
+        try {
+            log = new AppendLog(directory.resolve("users.log"));
+            log.replay(this::apply);
+        } catch (IOException e) {
+            throw new RuntimeException(new DataAccessException("Unable to open user log: " + e.getMessage()));
+        }
+        log.scheduleMaintenance(usersByUsername::size, target -> {
+            for (UserData userData : usersByUsername.values()) {
+                target.append(PUT_USER, out -> writeUser(out, userData));
+            }
+        });
+    }
+
+    public UserData getUser(String username) {
+        return username == null ? null : usersByUsername.get(username);
+    }
+
+    public UserData createUser(RegisterRequest registerRequest) throws DataAccessException {
+        String username = registerRequest.username();
+        String hashedPassword = BCrypt.hashpw(registerRequest.password(), BCrypt.gensalt());
+        UserData stored = new UserData(username, hashedPassword, registerRequest.email());
+        try {
+            synchronized (log) {
+                if (usersByUsername.containsKey(username)) {
+                    throw new DataAccessException("Error: already taken");
+                }
+                log.append(PUT_USER, out -> writeUser(out, stored));
+                usersByUsername.put(username, stored);
+            }
+        } catch (IOException e) {
+            throw new DataAccessException(String.format("Unable to write data: %s", e.getMessage()));
+        }
+        return new UserData(username, registerRequest.password(), registerRequest.email());
+    }
+
+    public void clearUser() throws DataAccessException {
+        try {
+            synchronized (log) {
+                log.append(CLEAR, out -> { });
+                usersByUsername.clear();
+            }
+        } catch (IOException e) {
+            throw new DataAccessException(String.format("Unable to write data: %s", e.getMessage()));
+        }
+    }
+
+    /**
+     * Stops maintaining the log and closes it
+     */
+    @Override
+    public void close() throws IOException {
+        log.close();
+    }
+
+    private void apply(byte type, DataInputStream in) throws IOException {
+        switch (type) {
+            case PUT_USER -> {
+                UserData userData = new UserData(in.readUTF(), in.readUTF(), in.readUTF());
+                usersByUsername.put(userData.username(), userData);
+            }
+            case CLEAR -> usersByUsername.clear();
+            default -> throw new IOException("Unknown user record type " + type);
+        }
+    }
+
+    private static void writeUser(DataOutputStream out, UserData userData) throws IOException {
+        out.writeUTF(userData.username());
+        out.writeUTF(userData.password());
+        out.writeUTF(userData.email());
+    }
+}
@@ -1,10 +1,12 @@
 package dataaccess;
 
 import chess.ChessGame;
+import chess.ChessMove;
 import model.AuthData;
 import model.GameData;
 import result.ListResult;
 import java.util.Collection;
+import java.util.List;
 
 public interface GameDAO {
 
@@ -14,6 +16,10 @@ public interface GameDAO {
 
     int updateGame(GameData gameData, AuthData authData, ChessGame.TeamColor playerColor) throws DataAccessException;
 
+    void appendMove(GameData gameData, ChessMove move) throws DataAccessException;
+
+    void appendMoves(GameData gameData, List<ChessMove> moves) throws DataAccessException;
+
     Collection<ListResult> listGames() throws DataAccessException;
 
     void clearGame() throws DataAccessException;
@@ -1,34 +1,76 @@
 package dataaccess;
 
 import model.AuthData;
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class MemoryAuthDAO implements AuthDAO {
 
-    private final HashSet<AuthData> authDataSet = new HashSet<>();
+    private final ConcurrentHashMap<String, AuthData> authByToken = new ConcurrentHashMap<>();
+    /*
+     * Only changed inside a compute for the username, so a token is never added to a set
+     * that a concurrent delete has just dropped from the map.
+     */
+    private final ConcurrentHashMap<String, Set<String>> tokensByUsername = new ConcurrentHashMap<>();
 
-    public AuthData createAuth(String username) {
+    /**
+     * Refuses a null username, as the NOT NULL column of MySqlAuthDAO does
+     */
+    public AuthData createAuth(String username) throws DataAccessException {
+        if (username == null) {
+            throw new DataAccessException("Error: bad request");
+        }
         String authToken = UUID.randomUUID().toString();
         AuthData authData = new AuthData(authToken, username);
-        authDataSet.add(authData);
+        tokensByUsername.compute(username, (name, tokens) -> {
+            if (tokens == null) {
+                tokens = ConcurrentHashMap.newKeySet();
+            }
+            authByToken.put(authToken, authData);
+            tokens.add(authToken);
+            return tokens;
+        });
         return authData;
     }
 
     public AuthData getAuth(String authToken) {
-        for (AuthData authData : authDataSet) {
-            if (authData.authToken().equals(authToken)) {
-                return authData;
+        return authToken == null ? null : authByToken.get(authToken);
+    }
+
+    /**
+     * @return every auth token the user is logged in with, empty if there are none
+     */
+    public Collection<AuthData> getAuthByUsername(String username) {
+        Set<String> tokens = username == null ? null : tokensByUsername.get(username);
+        if (tokens == null) {
+            return List.of();
+        }
+        Collection<AuthData> auths = new ArrayList<>(tokens.size());
+        for (String authToken : tokens) {
+            AuthData authData = authByToken.get(authToken);
+            if (authData != null) {
+                auths.add(authData);
             }
         }
-        return null;
+        return auths;
     }
 
     public void deleteAuth(AuthData authData) {
-        authDataSet.remove(authData);
+        AuthData removed = authByToken.remove(authData.authToken());
+        if (removed != null) {
+            tokensByUsername.computeIfPresent(removed.username(), (name, tokens) -> {
+                tokens.remove(removed.authToken());
+                return tokens.isEmpty() ? null : tokens;
+            });
+        }
     }
 
     public void clearAuth() {
-        authDataSet.clear();
+        authByToken.clear();
+        tokensByUsername.clear();
     }
 }
@@ -1,49 +1,65 @@
 package dataaccess;
 
 import chess.ChessGame;
+import chess.ChessMove;
 import model.AuthData;
 import model.GameData;
 import result.ListResult;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class MemoryGameDAO implements GameDAO {
 
-    private int nextID = 1;
-    private final HashSet<GameData> gameDataSet = new HashSet<>();
+    private final AtomicInteger nextID = new AtomicInteger(1);
+    private final ConcurrentHashMap<Integer, GameData> gamesByID = new ConcurrentHashMap<>();
 
     public GameData create(String gameName) {
         ChessGame chessGame = new ChessGame();
-        GameData gameData = new GameData(nextID++, null, null, gameName, chessGame);
-        gameDataSet.add(gameData);
+        GameData gameData = new GameData(nextID.getAndIncrement(), null, null, gameName, chessGame);
+        gamesByID.put(gameData.gameID(), gameData);
         return gameData;
     }
 
     public GameData getGame(int gameID) {
-        for (GameData gameData : gameDataSet) {
-            if (gameData.gameID() == gameID) {
-                return gameData;
-            }
-        }
-        return null;
+        return gamesByID.get(gameID);
     }
 
+    /**
+     * Sets or clears a player when playerColor is WHITE or BLACK, otherwise stores the
+     * game in gameData. The other fields keep their stored values, so concurrent updates
+     * to different players of one game do not overwrite each other.
+     */
     public int updateGame(GameData gameData, AuthData authData, ChessGame.TeamColor playerColor) {
-        GameData newGameData;
-        if (playerColor == ChessGame.TeamColor.WHITE) {
-            newGameData = gameData.setWhiteUsername(authData.username());
-        } else {
-            newGameData = gameData.setBlackUsername(authData.username());
-        }
-        gameDataSet.remove(gameData);
-        gameDataSet.add(newGameData);
+        String username = authData == null ? null : authData.username();
+        gamesByID.computeIfPresent(gameData.gameID(), (id, stored) -> {
+            if (playerColor == ChessGame.TeamColor.WHITE) {
+                return stored.setWhiteUsername(username);
+            } else if (playerColor == ChessGame.TeamColor.BLACK) {
+                return stored.setBlackUsername(username);
+            }
+            return new GameData(id, stored.whiteUsername(), stored.blackUsername(), stored.gameName(), gameData.game());
+        });
         return 0;
     }
 
+    public void appendMove(GameData gameData, ChessMove move) {
+        appendMoves(gameData, List.of(move));
+    }
+
+    /**
+     * Stores the game in gameData, which must already reflect the moves
+     */
+    public void appendMoves(GameData gameData, List<ChessMove> moves) {
+        gamesByID.computeIfPresent(gameData.gameID(), (id, stored) ->
+                new GameData(id, stored.whiteUsername(), stored.blackUsername(), stored.gameName(), gameData.game()));
+    }
+
     public Collection<ListResult> listGames() {
-        Collection<ListResult> list = new ArrayList<>();
-        for (GameData gameData : gameDataSet) {
+        Collection<ListResult> list = new ArrayList<>(gamesByID.size());
+        for (GameData gameData : gamesByID.values()) {
             ListResult listResult = new ListResult(gameData.gameID(),
                     gameData.whiteUsername(), gameData.blackUsername(), gameData.gameName());
             list.add(listResult);
@@ -51,7 +67,11 @@ public class MemoryGameDAO implements GameDAO {
         return list;
     }
 
+    /**
+     * Removes every game and restarts IDs at 1, as TRUNCATE does for the MySQL table
+     */
     public void clearGame() {
-        gameDataSet.clear();
+        gamesByID.clear();
+        nextID.set(1);
     }
 }
@@ -1,30 +1,34 @@
 package dataaccess;
 
 import model.UserData;
+import org.mindrot.jbcrypt.BCrypt;
 import request.RegisterRequest;
 
-import java.util.HashSet;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class MemoryUserDAO implements UserDAO {
 
-    private final HashSet<UserData> userDataSet = new HashSet<>();
+    private final ConcurrentHashMap<String, UserData> usersByUsername = new ConcurrentHashMap<>();
 
     public UserData getUser(String username) {
-        for (UserData userData : userDataSet) {
-            if (userData.username().equals(username)) {
-                return userData;
-            }
-        }
-        return null;
+        return username == null ? null : usersByUsername.get(username);
     }
 
-    public UserData createUser(RegisterRequest registerRequest) {
-        UserData userData = new UserData(registerRequest.username(), registerRequest.password(), registerRequest.email());
-        userDataSet.add(userData);
-        return userData;
+    /**
+     * Stores the password hashed, as MySqlUserDAO does, so UserService can check logins
+     * against either backend
+     */
+    public UserData createUser(RegisterRequest registerRequest) throws DataAccessException {
+        String username = registerRequest.username();
+        String hashedPassword = BCrypt.hashpw(registerRequest.password(), BCrypt.gensalt());
+        UserData stored = new UserData(username, hashedPassword, registerRequest.email());
+        if (usersByUsername.putIfAbsent(username, stored) != null) {
+            throw new DataAccessException("Error: already taken");
+        }
+        return new UserData(username, registerRequest.password(), registerRequest.email());
     }
 
     public void clearUser() {
-        userDataSet.clear();
+        usersByUsername.clear();
     }
 }
@@ -1,19 +1,31 @@
 package dataaccess;
 
 import chess.ChessGame;
+import chess.ChessMove;
+import chess.PositionCodec;
 import com.google.gson.Gson;
 import model.AuthData;
 import model.GameData;
 import result.ListResult;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.Collection;
-import static java.sql.Types.NULL;
+import java.util.List;
 
+/**
+ * Stores each game as a snapshot of its position in gameData plus an append-only log of
+ * the moves made since, one gameMoves row per ply. A move costs one small insert instead
+ * of rewriting the game, and the snapshot is refreshed every SNAPSHOT_INTERVAL plies so
+ * loading a game replays only a few moves.
+ */
 public class MySqlGameDAO implements GameDAO {
 
+    private static final int SNAPSHOT_INTERVAL = 16;
+    private static final Gson GSON = new Gson();
+
     public MySqlGameDAO() {
         try {
             String[] statements = {
@@ -23,15 +35,26 @@ public class MySqlGameDAO implements GameDAO {
               `whiteUsername` varchar(256) DEFAULT NULL,
               `blackUsername` varchar(256) DEFAULT NULL,
               `gameName` varchar(256) NOT NULL,
-              `game` TEXT NOT NULL,
+              `game` BLOB NOT NULL,
+              `snapshotPly` int NOT NULL DEFAULT 0,
               PRIMARY KEY (`gameID`),
               INDEX (whiteUsername),
               INDEX (blackUsername),
               INDEX (gameName)
             )
+            """,
+                    """
+            CREATE TABLE IF NOT EXISTS gameMoves (
+              `gameID` int NOT NULL,
+              `ply` int NOT NULL,
+              `move` smallint NOT NULL,
+              PRIMARY KEY (`gameID`, `ply`)
+            )
             """
             };
             ConfigureDatabase.run(statements);
+            migrateGameColumn();
+            addSnapshotPlyColumn();
         } catch (DataAccessException e) {
             throw new RuntimeException(e);
         }
@@ -39,9 +62,8 @@ public class MySqlGameDAO implements GameDAO {
 
     public GameData create(String gameName) throws DataAccessException {
         ChessGame chessGame = new ChessGame();
-        var jsonGame = new Gson().toJson(chessGame);
         var statement = "INSERT INTO gameData (gameName, game) VALUES (?, ?)";
-        int gameID = executeUpdate(statement, gameName, jsonGame);
+        int gameID = ConfigureDatabase.executeUpdate(statement, gameName, PositionCodec.encode(chessGame));
         return new GameData(gameID, null, null, gameName, chessGame);
     }
 
@@ -52,7 +74,9 @@ public class MySqlGameDAO implements GameDAO {
                 ps.setInt(1, gameID);
                 try (var rs = ps.executeQuery()) {
                     if (rs.next()) {
-                        return readGame(rs);
+                        GameData gameData = readGame(rs);
+                        replayMoves(conn, gameID, rs.getInt("snapshotPly"), gameData.game());
+                        return gameData;
                     }
                 }
             }
@@ -71,14 +95,76 @@ public class MySqlGameDAO implements GameDAO {
         String statement;
         if (playerColor == ChessGame.TeamColor.WHITE) {
             statement = "UPDATE gameData SET whiteUsername=? WHERE gameID=?";
-            return executeUpdate(statement, username, id);
+            return ConfigureDatabase.executeUpdate(statement, username, id);
         } else if (playerColor == ChessGame.TeamColor.BLACK) {
             statement = "UPDATE gameData SET blackUsername=? WHERE gameID=?";
-            return executeUpdate(statement, username, id);
+            return ConfigureDatabase.executeUpdate(statement, username, id);
         } else {
-            var jsonGame = new Gson().toJson(gameData.game());
-            statement = "UPDATE gameData SET game=? WHERE gameID=?";
-            return executeUpdate(statement, jsonGame, id);
+            statement = "UPDATE gameData SET game=?, "
+                    + "snapshotPly=(SELECT COALESCE(MAX(ply), 0) FROM gameMoves WHERE gameID=?) WHERE gameID=?";
+            return ConfigureDatabase.executeUpdate(statement, PositionCodec.encode(gameData.game()), id, id);
+        }
+    }
+
+    /**
+     * Logs a move made on a game. The game in gameData must already reflect the move; it
+     * is written as the new snapshot every SNAPSHOT_INTERVAL plies.
+     */
+    public void appendMove(GameData gameData, ChessMove move) throws DataAccessException {
+        appendMoves(gameData, List.of(move));
+    }
+
+    /**
+     * Logs several moves made on a game in one transaction. The game in gameData must
+     * already reflect all of them; it is written as the new snapshot if the moves pass a
+     * multiple of SNAPSHOT_INTERVAL plies.
+     */
+    public void appendMoves(GameData gameData, List<ChessMove> moves) throws DataAccessException {
+        if (moves.isEmpty()) {
+            return;
+        }
+        int gameID = gameData.gameID();
+        // Encoded up front, so a move that cannot be encoded fails before anything is batched
+        short[] encoded = new short[moves.size()];
+        try {
+            for (int i = 0; i < encoded.length; i++) {
+                encoded[i] = (short) moves.get(i).encode();
+            }
+        } catch (RuntimeException ex) {
+            throw new DataAccessException(String.format("Unable to encode move: %s", ex.getMessage()));
+        }
+        try (var conn = DatabaseManager.getConnection()) {
+            conn.setAutoCommit(false);
+            int lastPly = 0;
+            try (var ps = conn.prepareStatement("SELECT COALESCE(MAX(ply), 0) FROM gameMoves WHERE gameID=?")) {
+                ps.setInt(1, gameID);
+                try (var rs = ps.executeQuery()) {
+                    if (rs.next()) {
+                        lastPly = rs.getInt(1);
+                    }
+                }
+            }
+            int firstPly = lastPly + 1;
+            try (var ps = conn.prepareStatement("INSERT INTO gameMoves (gameID, ply, move) VALUES (?, ?, ?)")) {
+                for (short move : encoded) {
+                    ps.setInt(1, gameID);
+                    ps.setInt(2, ++lastPly);
+                    ps.setShort(3, move);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+            if (lastPly / SNAPSHOT_INTERVAL > (firstPly - 1) / SNAPSHOT_INTERVAL) {
+                try (var ps = conn.prepareStatement("UPDATE gameData SET game=?, snapshotPly=? WHERE gameID=?")) {
+                    ps.setBytes(1, PositionCodec.encode(gameData.game()));
+                    ps.setInt(2, lastPly);
+                    ps.setInt(3, gameID);
+                    ps.executeUpdate();
+                }
+            }
+            conn.commit();
+        } catch (SQLException ex) {
+            throw new DataAccessException(String.format("Unable to access database: %s", ex.getMessage()));
         }
     }
 
@@ -101,7 +187,60 @@ public class MySqlGameDAO implements GameDAO {
 
     public void clearGame() throws DataAccessException {
         var statement = "TRUNCATE gameData";
-        executeUpdate(statement);
+        ConfigureDatabase.executeUpdate(statement);
+        ConfigureDatabase.executeUpdate("TRUNCATE gameMoves");
+    }
+
+    private void replayMoves(Connection conn, int gameID, int snapshotPly, ChessGame game) throws SQLException {
+        var statement = "SELECT move FROM gameMoves WHERE gameID=? AND ply>? ORDER BY ply";
+        try (var ps = conn.prepareStatement(statement)) {
+            ps.setInt(1, gameID);
+            ps.setInt(2, snapshotPly);
+            try (var rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    game.applyMove(ChessMove.decode(rs.getShort(1)));
+                }
+            }
+        }
+    }
+
+    /**
+     * Tables created when games were stored as JSON text have a TEXT game column. Rows
+     * keep their JSON through the change and are read by decodeGame.
+     */
+    private void migrateGameColumn() throws DataAccessException {
+        String type = columnType("game");
+        if (type != null && !type.equalsIgnoreCase("blob")) {
+            ConfigureDatabase.run(new String[]{"ALTER TABLE gameData MODIFY `game` BLOB NOT NULL"});
+        }
+    }
+
+    /**
+     * Tables created before the move log have no snapshotPly column. MySQL has no
+     * ADD COLUMN IF NOT EXISTS, so look it up first.
+     */
+    private void addSnapshotPlyColumn() throws DataAccessException {
+        if (columnType("snapshotPly") == null) {
+            ConfigureDatabase.run(new String[]{"ALTER TABLE gameData ADD COLUMN `snapshotPly` int NOT NULL DEFAULT 0"});
+        }
+    }
+
+    /**
+     * @return the data type of a gameData column, or null if the table has no such column
+     */
+    private String columnType(String column) throws DataAccessException {
+        var statement = "SELECT DATA_TYPE FROM information_schema.COLUMNS "
+                + "WHERE TABLE_SCHEMA=DATABASE() AND TABLE_NAME='gameData' AND COLUMN_NAME=?";
+        try (var conn = DatabaseManager.getConnection()) {
+            try (var ps = conn.prepareStatement(statement)) {
+                ps.setString(1, column);
+                try (var rs = ps.executeQuery()) {
+                    return rs.next() ? rs.getString(1) : null;
+                }
+            }
+        } catch (SQLException ex) {
+            throw new DataAccessException(String.format("Unable to configure database: %s", ex.getMessage()));
+        }
     }
 
     private ListResult convertGameDataToListResult(GameData gameData) {
@@ -114,30 +253,18 @@ public class MySqlGameDAO implements GameDAO {
         String whiteUsername = rs.getString("whiteUsername");
         String blackUsername = rs.getString("blackUsername");
         String gameName = rs.getString("gameName");
-        String jsonGame = rs.getString("game");
-        ChessGame game = new Gson().fromJson(jsonGame, ChessGame.class);
-        return new GameData(gameID, whiteUsername, blackUsername, gameName, game);
+        return new GameData(gameID, whiteUsername, blackUsername, gameName, decodeGame(rs.getBytes("game")));
     }
 
-    private int executeUpdate(String statement, Object... params) throws DataAccessException {
-        try (var conn = DatabaseManager.getConnection()) {
-            try (var ps = conn.prepareStatement(statement, Statement.RETURN_GENERATED_KEYS)) {
-                for (var i = 0; i < params.length; i++) {
-                    var param = params[i];
-                    if (param instanceof String p) {ps.setString(i + 1, p);}
-                    else if (param instanceof Integer p) {ps.setInt(i + 1, p);}
-                    else if (param instanceof ChessGame p) {ps.setString(i + 1, p.toString());}
-                    else if (param == null) {ps.setNull(i + 1, NULL);}
-                    }
-                ps.executeUpdate();
-                var rs = ps.getGeneratedKeys();
-                if (rs.next()) {
-                    return rs.getInt(1);
-                }
-                return 0;
-            }
-        } catch (SQLException ex) {
-            throw new DataAccessException(String.format("Unable to access database: %s", ex.getMessage()));
+    /**
+     * Reads the game column: a {@link PositionCodec} position, or for rows written before
+     * positions were stored in binary, the game as JSON. That JSON holds the board as an
+     * array of pieces, which ChessBoard's JSON adapter turns into bitboards.
+     */
+    static ChessGame decodeGame(byte[] storedGame) {
+        if (storedGame.length == PositionCodec.SIZE) {
+            return PositionCodec.decode(storedGame);
         }
+        return GSON.fromJson(new String(storedGame, StandardCharsets.UTF_8), ChessGame.class);
     }
 }
@@ -0,0 +1,8 @@
+package dataaccess;
+
+/**
+ * A snapshot of the connection pool's counters. Wait times cover only the borrows
+ * that had to wait for a connection to be returned.
+ */
+public record PoolStats(int open, int idle, long borrows, long waits, long timeouts,
+                        long totalWaitMillis, long maxWaitMillis, long created, long evicted) {}
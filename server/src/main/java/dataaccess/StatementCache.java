@@ -0,0 +1,129 @@
+package dataaccess;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The prepared statements of one pooled connection, keyed by their SQL. Every DAO runs a
+ * fixed set of statements, so once a connection has prepared one it is kept and handed
+ * out again rather than parsed and planned on each call. The least recently used
+ * statement is closed once the cache holds more than capacity.
+ * <p>
+ * Callers get a handle whose close() clears the statement's parameters and batch and
+ * leaves it open for the next borrower of the connection. A cache is only used by the one thread
+ * that has its connection borrowed.
+ */
+class StatementCache {
+
+    private record Key(String sql, int autoGeneratedKeys) {}
+
+    private final Connection connection;
+    private final int capacity;
+    private final LinkedHashMap<Key, PreparedStatement> statements;
+
+    StatementCache(Connection connection, int capacity) {
+        this.connection = connection;
+        this.capacity = capacity;
+        this.statements = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * @param autoGeneratedKeys {@link java.sql.Statement#RETURN_GENERATED_KEYS} or
+     *                          {@link java.sql.Statement#NO_GENERATED_KEYS}
+     * @return a handle on the cached statement for this SQL, prepared if not cached yet
+     */
+    PreparedStatement prepare(String sql, int autoGeneratedKeys) throws SQLException {
+        if (capacity <= 0) {
+            return connection.prepareStatement(sql, autoGeneratedKeys);
+        }
+        Key key = new Key(sql, autoGeneratedKeys);
+        PreparedStatement statement = statements.get(key);
+        if (statement == null || statement.isClosed()) {
+            statement = connection.prepareStatement(sql, autoGeneratedKeys);
+            statements.put(key, statement);
+            evictOverCapacity();
+        }
+        return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                new Class<?>[]{PreparedStatement.class}, new Handle(statement));
+    }
+
+    /**
+     * Closes every cached statement, before the connection itself is closed
+     */
+    void close() {
+        for (PreparedStatement statement : statements.values()) {
+            closeQuietly(statement);
+        }
+        statements.clear();
+    }
+
+    private void evictOverCapacity() {
+        Iterator<PreparedStatement> leastRecentFirst = statements.values().iterator();
+        while (statements.size() > capacity && leastRecentFirst.hasNext()) {
+            closeQuietly(leastRecentFirst.next());
+            leastRecentFirst.remove();
+        }
+    }
+
+    private static void closeQuietly(PreparedStatement statement) {
+        try {
+            statement.close();
+        } catch (SQLException ignored) {
+            // The statement is dropped either way
+        }
+    }
+
+    /**
+     * Forwards every call to the cached statement until close(), which only clears its
+     * parameters and any batch left unexecuted. A handle cannot be used after it is closed.
+     */
+    private static class Handle implements InvocationHandler {
+        private PreparedStatement statement;
+
+        Handle(PreparedStatement statement) {
+            this.statement = statement;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close" -> {
+                    if (statement != null) {
+                        PreparedStatement released = statement;
+                        statement = null;
+                        released.clearParameters();
+                        released.clearBatch();
+                    }
+                    return null;
+                }
+                case "isClosed" -> {
+                    return statement == null || statement.isClosed();
+                }
+                case "equals" -> {
+                    return proxy == args[0];
+                }
+                case "hashCode" -> {
+                    return System.identityHashCode(proxy);
+                }
+                default -> {
+                    if (statement == null) {
+                        throw new SQLException("Statement has been closed");
+                    }
+                    try {
+                        return method.invoke(statement, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package dataaccess;
+
+import java.nio.file.Path;
+
+/**
+ * Where the server keeps its data, chosen with the chess.storage system property or the
+ * CHESS_STORAGE environment variable:
+ * <ul>
+ *     <li>mysql, the default, uses the database described by db.properties</li>
+ *     <li>file keeps append-only logs in the directory named by chess.dataDir or
+ *     CHESS_DATA_DIR, by default ./data, and needs no database server</li>
+ *     <li>memory keeps nothing once the server stops</li>
+ * </ul>
+ */
+public enum StorageBackend {
+    MYSQL,
+    FILE,
+    MEMORY;
+
+    public static StorageBackend fromConfig() {
+        String name = setting("chess.storage", "CHESS_STORAGE", "mysql");
+        try {
+            return valueOf(name.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown chess.storage backend: " + name);
+        }
+    }
+
+    public AuthDAO createAuthDao() {
+        return switch (this) {
+            case MYSQL -> new MySqlAuthDAO();
+            case FILE -> new FileAuthDAO(dataDirectory());
+            case MEMORY -> new MemoryAuthDAO();
+        };
+    }
+
+    public GameDAO createGameDao() {
+        return switch (this) {
+            case MYSQL -> new MySqlGameDAO();
+            case FILE -> new FileGameDAO(dataDirectory());
+            case MEMORY -> new MemoryGameDAO();
+        };
+    }
+
+    public UserDAO createUserDao() {
+        return switch (this) {
+            case MYSQL -> new MySqlUserDAO();
+            case FILE -> new FileUserDAO(dataDirectory());
+            case MEMORY -> new MemoryUserDAO();
+        };
+    }
+
+    private static Path dataDirectory() {
+        return Path.of(setting("chess.dataDir", "CHESS_DATA_DIR", "data"));
+    }
+
+    private static String setting(String property, String environmentVariable, String fallback) {
+        String value = System.getProperty(property);
+        if (value == null) {
+            value = System.getenv(environmentVariable);
+        }
+        return value == null || value.isBlank() ? fallback : value;
+    }
+}
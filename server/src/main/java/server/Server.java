@@ -3,6 +3,8 @@ package server;
 import com.google.gson.JsonSyntaxException;
 import dataaccess.*;
 import exception.ErrorException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import server.websocket.WebSocketHandler;
 import service.*;
 import spark.*;
@@ -11,13 +13,20 @@ import request.*;
 import result.*;
 
 import javax.xml.crypto.Data;
+import java.io.Closeable;
+import java.io.IOException;
 import java.util.Map;
 
 public class Server {
 
-    private final AuthDAO authDao = new MySqlAuthDAO();
-    private final GameDAO gameDao = new MySqlGameDAO();
-    private final UserDAO userDao = new MySqlUserDAO();
+    private static final Logger LOG = LoggerFactory.getLogger(Server.class);
+
+    private final StorageBackend storage = StorageBackend.fromConfig();
+    private final AuthDAO authStore = storage.createAuthDao();
+    private final GameDAO gameStore = storage.createGameDao();
+    private final AuthDAO authDao = new AuthCache(authStore);
+    private final GameCache gameDao = new GameCache(gameStore);
+    private final UserDAO userDao = storage.createUserDao();
     private final ClearService clearService = new ClearService(authDao, gameDao, userDao);
     private final GameService gameService = new GameService(authDao, gameDao);
     private final UserService userService = new UserService(authDao, userDao);
@@ -43,6 +52,20 @@ public class Server {
     public void stop() {
         Spark.stop();
         Spark.awaitStop();
+        gameDao.close();
+        closeStore(authStore);
+        closeStore(gameStore);
+        closeStore(userDao);
+    }
+
+    private static void closeStore(Object dao) {
+        if (dao instanceof Closeable closeable) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                LOG.warn("Unable to close {}", dao.getClass().getSimpleName(), e);
+            }
+        }
     }
 
     private Object register(Request req, Response res) {
@@ -0,0 +1,64 @@
+package server;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Server settings, each read from a system property, then from an environment variable,
+ * then taken from a default. A value that cannot be used is logged and replaced by the
+ * default, so a typo in one setting never stops the server.
+ */
+public final class Settings {
+
+    private static final Logger LOG = LoggerFactory.getLogger(Settings.class);
+
+    private Settings() {}
+
+    /**
+     * @return the setting, or fallback when neither is set or both are blank
+     */
+    public static String get(String property, String environmentVariable, String fallback) {
+        String value = System.getProperty(property);
+        if (value == null) {
+            value = System.getenv(environmentVariable);
+        }
+        return value == null || value.isBlank() ? fallback : value;
+    }
+
+    /**
+     * @return the setting as a positive integer, or fallback if it is not one
+     */
+    public static int getPositiveInt(String property, String environmentVariable, int fallback) {
+        String value = get(property, environmentVariable, null);
+        if (value == null) {
+            return fallback;
+        }
+        try {
+            int parsed = Integer.parseInt(value.trim());
+            if (parsed > 0) {
+                return parsed;
+            }
+        } catch (NumberFormatException ignored) {
+            // Falls through to the warning below
+        }
+        LOG.warn("Setting {} must be a positive integer but is \"{}\"; using {}", property, value, fallback);
+        return fallback;
+    }
+
+    /**
+     * @return the constant of the setting's enum named by it, ignoring case, or fallback
+     * if it names none
+     */
+    public static <E extends Enum<E>> E getEnum(String property, String environmentVariable, E fallback) {
+        String value = get(property, environmentVariable, null);
+        if (value == null) {
+            return fallback;
+        }
+        try {
+            return Enum.valueOf(fallback.getDeclaringClass(), value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            LOG.warn("Setting {} has unknown value \"{}\"; using {}", property, value, fallback);
+            return fallback;
+        }
+    }
+}
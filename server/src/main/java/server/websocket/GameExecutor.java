@@ -0,0 +1,77 @@
+package server.websocket;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Runs the commands for each game one at a time, in the order they were submitted, while
+ * commands for different games run in parallel. Each game with work queued has a mailbox
+ * that a single virtual thread drains; the mailbox is dropped once it is empty, so idle
+ * games cost nothing and no lock is shared between games.
+ */
+class GameExecutor {
+
+    private static final Logger LOG = LoggerFactory.getLogger(GameExecutor.class);
+
+    private final ExecutorService threads = Executors.newVirtualThreadPerTaskExecutor();
+    private final ConcurrentHashMap<Integer, Mailbox> mailboxes = new ConcurrentHashMap<>();
+
+    /*
+     * Only read or changed inside a ConcurrentHashMap compute for its game, which is what
+     * keeps a second drainer from starting while one is running.
+     */
+    private static class Mailbox {
+        private final ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+    }
+
+    /**
+     * Queues a task behind every task already submitted for the same game
+     */
+    void submit(int gameID, Runnable task) {
+        boolean[] start = new boolean[1];
+        mailboxes.compute(gameID, (id, mailbox) -> {
+            if (mailbox == null) {
+                mailbox = new Mailbox();
+                start[0] = true;
+            }
+            mailbox.tasks.add(task);
+            return mailbox;
+        });
+        if (start[0]) {
+            threads.execute(() -> drain(gameID));
+        }
+    }
+
+    private void drain(int gameID) {
+        Runnable task = next(gameID, null);
+        while (task != null) {
+            try {
+                task.run();
+            } catch (RuntimeException ex) {
+                LOG.warn("Command for game {} failed", gameID, ex);
+            }
+            task = next(gameID, task);
+        }
+    }
+
+    /**
+     * Removes the task that just ran and returns the one after it, or drops the mailbox
+     * and returns null when there is none
+     */
+    private Runnable next(int gameID, Runnable finished) {
+        Runnable[] next = new Runnable[1];
+        mailboxes.computeIfPresent(gameID, (id, mailbox) -> {
+            if (finished != null) {
+                mailbox.tasks.poll();
+            }
+            next[0] = mailbox.tasks.peek();
+            return next[0] == null ? null : mailbox;
+        });
+        return next[0];
+    }
+}
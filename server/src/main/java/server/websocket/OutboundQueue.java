@@ -0,0 +1,148 @@
+package server.websocket;
+
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.StatusCode;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+
+/**
+ * The messages waiting to go out to one session. At most one asynchronous send is in
+ * flight per session; the rest wait here, in order, and the next is sent from the
+ * completion callback of the one before. Senders never block, so a client that reads
+ * slowly only ever delays its own messages.
+ * <p>
+ * The queue holds at most capacity messages. What happens when a message arrives at a
+ * full queue is decided by its {@link Policy}. The server takes both from settings, see
+ * {@link WebSocketHandler}.
+ */
+class OutboundQueue implements WriteCallback {
+
+    enum Policy {
+        /**
+         * Drop queued board states that a newer one supersedes, since a client only needs
+         * the latest; disconnect if that frees no room
+         */
+        LATEST_STATE,
+        /**
+         * Disconnect the session
+         */
+        DISCONNECT
+    }
+
+    private static final Logger LOG = LoggerFactory.getLogger(OutboundQueue.class);
+
+    private record Frame(String json, boolean state) {}
+
+    private final Session session;
+    private final int capacity;
+    private final Policy policy;
+    private final ArrayDeque<Frame> pending = new ArrayDeque<>();
+    private boolean sending;
+    private boolean closed;
+
+    OutboundQueue(Session session, int capacity, Policy policy) {
+        this.session = session;
+        this.capacity = capacity;
+        this.policy = policy;
+    }
+
+    /**
+     * Sends a message now if nothing is in flight, otherwise queues it
+     *
+     * @param state whether the message is a complete board state that a later one
+     *              makes redundant
+     */
+    void offer(String json, boolean state) {
+        Frame frame = new Frame(json, state);
+        boolean disconnect = false;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            if (!sending) {
+                sending = true;
+            } else if (enqueue(frame)) {
+                return;
+            } else {
+                closed = true;
+                pending.clear();
+                disconnect = true;
+            }
+        }
+        if (disconnect) {
+            session.close(StatusCode.POLICY_VIOLATION, "Client is not keeping up with game updates");
+        } else {
+            write(frame);
+        }
+    }
+
+    @Override
+    public void writeSuccess() {
+        sendNext();
+    }
+
+    @Override
+    public void writeFailed(Throwable x) {
+        LOG.warn("Unable to send to {}", session.getRemoteAddress(), x);
+        sendNext();
+    }
+
+    /**
+     * @return false if the queue is full and the policy could not make room
+     */
+    private boolean enqueue(Frame frame) {
+        if (pending.size() >= capacity && policy == Policy.LATEST_STATE) {
+            dropSupersededStates(frame.state());
+        }
+        if (pending.size() >= capacity) {
+            return false;
+        }
+        pending.add(frame);
+        return true;
+    }
+
+    /*
+     * A new state supersedes every queued one; otherwise the newest queued state stays.
+     */
+    private void dropSupersededStates(boolean newFrameIsState) {
+        boolean keepNewest = !newFrameIsState;
+        Iterator<Frame> newestFirst = pending.descendingIterator();
+        while (newestFirst.hasNext()) {
+            if (newestFirst.next().state()) {
+                if (keepNewest) {
+                    keepNewest = false;
+                } else {
+                    newestFirst.remove();
+                }
+            }
+        }
+    }
+
+    private void sendNext() {
+        Frame next;
+        synchronized (this) {
+            next = closed ? null : pending.poll();
+            if (next == null) {
+                sending = false;
+                return;
+            }
+        }
+        write(next);
+    }
+
+    private void write(Frame frame) {
+        if (!session.isOpen()) {
+            synchronized (this) {
+                closed = true;
+                pending.clear();
+                sending = false;
+            }
+            return;
+        }
+        session.getRemote().sendString(frame.json(), this);
+    }
+}
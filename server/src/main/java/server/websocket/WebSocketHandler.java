@@ -6,32 +6,65 @@ import com.google.gson.Gson;
 import dataaccess.DataAccessException;
 import model.GameData;
 import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.annotations.OnWebSocketClose;
 import org.eclipse.jetty.websocket.api.annotations.OnWebSocketError;
 import org.eclipse.jetty.websocket.api.annotations.OnWebSocketMessage;
 import org.eclipse.jetty.websocket.api.annotations.WebSocket;
+import server.Settings;
 import service.GameService;
 import service.UserService;
+import websocket.commands.ConnectCommand;
 import websocket.commands.MakeMoveCommand;
 import websocket.commands.UserGameCommand;
 import websocket.messages.ErrorMessage;
 import websocket.messages.LoadGameMessage;
+import websocket.messages.MoveMadeMessage;
 import websocket.messages.NotificationMessage;
+import websocket.messages.ServerMessage;
 
-import java.io.IOException;
-import java.util.HashSet;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static chess.ChessGame.TeamColor.*;
 
 @WebSocket
 public class WebSocketHandler {
 
-    private final WebSocketSessions webSocketSessions = new WebSocketSessions();
+    private static final Gson GSON = new Gson();
+
+    private final WebSocketSessions webSocketSessions;
+    private final GameExecutor gameExecutor = new GameExecutor();
+    private final ConcurrentHashMap<Session, OutboundQueue> outboundQueues = new ConcurrentHashMap<>();
+    /*
+     * The game each session asked for MOVE_MADE messages on; everyone else gets a full
+     * LOAD_GAME after each move.
+     */
+    private final ConcurrentHashMap<Session, Integer> moveUpdateGames = new ConcurrentHashMap<>();
     private final GameService gameService;
     private final UserService userService;
+    private final int queueCapacity;
+    private final OutboundQueue.Policy backpressure;
 
+    /**
+     * Each session's outbound queue holds chess.ws.queueSize (CHESS_WS_QUEUE_SIZE)
+     * messages, 64 by default, and handles a full queue with the policy named by
+     * chess.ws.backpressure (CHESS_WS_BACKPRESSURE), latest_state by default.
+     */
     public WebSocketHandler(GameService gameService, UserService userService) {
+        this(gameService, userService, new WebSocketSessions());
+    }
+
+    WebSocketHandler(GameService gameService, UserService userService, WebSocketSessions webSocketSessions) {
         this.gameService = gameService;
         this.userService = userService;
+        this.webSocketSessions = webSocketSessions;
+        this.queueCapacity = Settings.getPositiveInt("chess.ws.queueSize", "CHESS_WS_QUEUE_SIZE", 64);
+        this.backpressure = Settings.getEnum("chess.ws.backpressure", "CHESS_WS_BACKPRESSURE",
+                OutboundQueue.Policy.LATEST_STATE);
+    }
+
+    @OnWebSocketClose
+    public void onClose(Session session, int statusCode, String reason) {
+        forget(session);
     }
 
     @OnWebSocketError
@@ -39,19 +72,41 @@ public class WebSocketHandler {
         System.out.println(throwable.getMessage());
     }
 
+    /**
+     * Commands are handed to the game's mailbox, so commands for one game never race
+     * each other while different games are handled in parallel. A message that is not a
+     * command for some game is answered with an error here, since it has no mailbox.
+     */
     @OnWebSocketMessage
-    public void onMessage(Session session, String message) throws IOException {
+    public void onMessage(Session session, String message) {
+        UserGameCommand command;
+        try {
+            command = GSON.fromJson(message, UserGameCommand.class);
+        } catch (Exception ex) {
+            sendMessage(new ErrorMessage(ex.getMessage()), session);
+            return;
+        }
+        if (command == null || command.getCommandType() == null || command.getGameID() == null) {
+            sendMessage(new ErrorMessage("Error: bad request"), session);
+            return;
+        }
+        gameExecutor.submit(command.getGameID(), () -> handle(session, message, command));
+    }
+
+    private void handle(Session session, String message, UserGameCommand command) {
         try {
-            UserGameCommand command = new Gson().fromJson(message, UserGameCommand.class);
             String username = getUsername(command.getAuthToken());
             if (username != null) {
                 saveSession(command.getGameID(), session);
                 switch (command.getCommandType()) {
-                    case CONNECT -> connect(session, username, command);
+                    case CONNECT -> {
+                        ConnectCommand connectCommand = GSON.fromJson(message, ConnectCommand.class);
+                        connect(session, username, connectCommand);
+                    }
                     case LEAVE -> leaveGame(session, username, command);
                     case RESIGN -> resignGame(session, username, command);
                     case MAKE_MOVE -> {
-                        MakeMoveCommand moveCommand = new Gson().fromJson(message, MakeMoveCommand.class);
+                        MakeMoveCommand moveCommand = GSON.fromJson(message, MakeMoveCommand.class);
                         makeMove(session, username, moveCommand);
                     }
                 }
@@ -60,18 +115,43 @@ public class WebSocketHandler {
             }
         } catch (Exception ex) {
             ErrorMessage errorMessage = new ErrorMessage(ex.getMessage());
-            sendErrorMessage(errorMessage, session);
+            sendMessage(errorMessage, session);
+        }
+        /*
+         * onClose runs on Jetty's thread and may already have cleaned up before this
+         * command registered the session, so undo that registration once it is closed.
+         */
+        if (!session.isOpen()) {
+            forget(session);
         }
     }
 
-    private void connect(Session session, String username, UserGameCommand command) throws IOException {
+    private void forget(Session session) {
+        webSocketSessions.removeSession(session);
+        outboundQueues.remove(session);
+        moveUpdateGames.remove(session);
+    }
+
+    /**
+     * A session that asks for move updates a second time on the same game has fallen out
+     * of step with it, so it only gets a LOAD_GAME; the others in the game hear nothing.
+     */
+    private void connect(Session session, String username, ConnectCommand command) {
         try {
             int gameID = command.getGameID();
             webSocketSessions.add(gameID, session);
             GameData gameData = gameService.getGame(gameID);
             if (gameData != null) {
                 LoadGameMessage message1 = new LoadGameMessage(gameData);
-                sendLoadGameMessage(message1, session);
+                sendMessage(message1, session);
+                if (command.wantsMoveUpdates()) {
+                    Integer previous = moveUpdateGames.put(session, gameID);
+                    if (previous != null && previous == gameID) {
+                        return;
+                    }
+                } else {
+                    moveUpdateGames.remove(session);
+                }
                 NotificationMessage message2 = new NotificationMessage(
                         String.format("%s has joined the game as an observer.", username));
                 if (gameData.whiteUsername() != null) {
@@ -84,17 +164,17 @@ public class WebSocketHandler {
                         message2 = new NotificationMessage(String.format("%s has joined the game as black.", username));
                     }
                 }
-                broadcastNotificationMessage(gameID, message2, session);
+                broadcastMessage(gameID, message2, session);
             } else {
                 throw new Exception("Error: game ID is invalid");
             }
         } catch (Exception ex) {
             ErrorMessage message = new ErrorMessage(ex.getMessage());
-            sendErrorMessage(message, session);
+            sendMessage(message, session);
         }
     }
 
-    private void makeMove(Session session, String username, MakeMoveCommand command) throws IOException {
+    private void makeMove(Session session, String username, MakeMoveCommand command) {
         try {
             int gameID = command.getGameID();
             GameData gameData = gameService.getGame(command.getGameID());
@@ -115,41 +195,40 @@ public class WebSocketHandler {
             } else {
                 throw new Exception("Error: Invalid move.");
             }
-            LoadGameMessage message1 = new LoadGameMessage(gameData);
-            sendLoadGameMessage(message1, session);
-            broadcastLoadGameMessage(gameID, message1, session);
+            MoveMadeMessage.GameStatus status = gameStatus(gameData);
+            sendMoveToGame(gameID, gameData, new MoveMadeMessage(move, game.getPly(), status), session);
             NotificationMessage message2 =
                     new NotificationMessage(String.format("%s has made move %s", username, moveToString(move)));
-            broadcastNotificationMessage(gameID, message2, session);
-            if (isInCheckmate(gameData)) {
+            broadcastMessage(gameID, message2, session);
+            if (status == MoveMadeMessage.GameStatus.CHECKMATE) {
                 String opponent = opponentUsername(gameData);
                 NotificationMessage message3 =
                         new NotificationMessage(String.format("%s has been checkmated", opponent));
-                sendNotificationMessage(message3, session);
-                broadcastNotificationMessage(gameID, message3, session);
+                sendToGame(gameID, message3, session);
                 game.setTeamTurn(GAME_OVER);
-            } else if (isinCheck(gameData)) {
+            } else if (status == MoveMadeMessage.GameStatus.CHECK) {
                 String opponent = opponentUsername(gameData);
                 NotificationMessage message4 =
                         new NotificationMessage(String.format("%s is in check", opponent));
-                sendNotificationMessage(message4, session);
-                broadcastNotificationMessage(gameID, message4, session);
-            } else if (isInStalemate(gameData)) {
+                sendToGame(gameID, message4, session);
+            } else if (status == MoveMadeMessage.GameStatus.STALEMATE) {
                 String opponent = opponentUsername(gameData);
                 NotificationMessage message5 =
                         new NotificationMessage(String.format("%s has been stalemated", opponent));
-                sendNotificationMessage(message5, session);
-                broadcastNotificationMessage(gameID, message5, session);
+                sendToGame(gameID, message5, session);
                 game.setTeamTurn(GAME_OVER);
             }
-            gameService.updateGame(gameData, null, null);
+            gameService.appendMove(gameData, move);
+            if (game.getTeamTurn() == GAME_OVER) {
+                gameService.updateGame(gameData, null, null);
+            }
         } catch (Exception ex) {
             ErrorMessage message = new ErrorMessage(ex.getMessage());
-            sendErrorMessage(message, session);
+            sendMessage(message, session);
         }
     }
 
-    private void resignGame(Session session, String username, UserGameCommand command) throws IOException {
+    private void resignGame(Session session, String username, UserGameCommand command) {
         try {
             int gameID = command.getGameID();
             GameData gameData = gameService.getGame(command.getGameID());
@@ -161,16 +240,15 @@ public class WebSocketHandler {
             }
             game.setTeamTurn(GAME_OVER);
             NotificationMessage message = new NotificationMessage(String.format("%s has resigned the game", username));
-            sendNotificationMessage(message, session);
-            broadcastNotificationMessage(gameID, message, session);
+            sendToGame(gameID, message, session);
             gameService.updateGame(gameData, null, GAME_OVER);
         } catch (Exception ex) {
             ErrorMessage message = new ErrorMessage(ex.getMessage());
-            sendErrorMessage(message, session);
+            sendMessage(message, session);
         }
     }
 
-    private void leaveGame(Session session, String username, UserGameCommand command) throws IOException {
+    private void leaveGame(Session session, String username, UserGameCommand command) {
         try {
             int gameID = command.getGameID();
             GameData gameData = gameService.getGame(command.getGameID());
@@ -187,11 +265,12 @@ public class WebSocketHandler {
                 }
             }
             NotificationMessage message = new NotificationMessage(String.format("%s has left the game", username));
-            broadcastNotificationMessage(gameID, message, session);
-            webSocketSessions.get(gameID).remove(session);
+            broadcastMessage(gameID, message, session);
+            webSocketSessions.remove(gameID, session);
+            moveUpdateGames.remove(session, gameID);
         } catch (Exception ex) {
             ErrorMessage message = new ErrorMessage(ex.getMessage());
-            sendErrorMessage(message, session);
+            sendMessage(message, session);
         }
     }
 
@@ -222,6 +301,17 @@ public class WebSocketHandler {
         }
     }
 
+    private MoveMadeMessage.GameStatus gameStatus(GameData gameData) {
+        if (isInCheckmate(gameData)) {
+            return MoveMadeMessage.GameStatus.CHECKMATE;
+        } else if (isinCheck(gameData)) {
+            return MoveMadeMessage.GameStatus.CHECK;
+        } else if (isInStalemate(gameData)) {
+            return MoveMadeMessage.GameStatus.STALEMATE;
+        }
+        return MoveMadeMessage.GameStatus.IN_PROGRESS;
+    }
+
     private boolean isInCheckmate(GameData gameData) {
         ChessGame.TeamColor teamTurn = gameData.game().getTeamTurn();
         return gameData.game().isInCheckmate(teamTurn);
@@ -238,7 +328,7 @@ public class WebSocketHandler {
     }
 
     private void saveSession(int gameID, Session session) {
-        if (webSocketSessions.get(gameID) == null) {
+        if (webSocketSessions.get(gameID).isEmpty()) {
             webSocketSessions.add(gameID, session);
         }
     }
@@ -272,41 +362,79 @@ public class WebSocketHandler {
         };
     }
 
-    private void sendNotificationMessage(NotificationMessage message, Session session) throws IOException {
-        session.getRemote().sendString(new Gson().toJson(message));
+    private void sendMessage(ServerMessage message, Session session) {
+        send(GSON.toJson(message), isState(message), session);
     }
 
-    private void sendLoadGameMessage(LoadGameMessage message, Session session) throws IOException {
-        session.getRemote().sendString(new Gson().toJson(message));
+    /**
+     * Sends a message to the given session and to every other session watching the game,
+     * serialized once for all of them
+     */
+    private void sendToGame(int gameID, ServerMessage message, Session session) {
+        String json = GSON.toJson(message);
+        send(json, isState(message), session);
+        fanOut(gameID, json, isState(message), session);
     }
 
-    private void sendErrorMessage(ErrorMessage message, Session session) throws IOException {
-        session.getRemote().sendString(new Gson().toJson(message));
+    /**
+     * Tells the given session and every other session watching the game about a move:
+     * sessions that asked for move updates get the MOVE_MADE message, the rest a LOAD_GAME
+     * of the whole game. Each is serialized at most once.
+     */
+    private void sendMoveToGame(int gameID, GameData gameData, MoveMadeMessage moveMade, Session session) {
+        String moveJson = GSON.toJson(moveMade);
+        String[] loadJson = new String[1];
+        sendMove(gameID, gameData, moveJson, loadJson, session);
+        for (Session other : webSocketSessions.get(gameID)) {
+            if (other != session) {
+                sendMove(gameID, gameData, moveJson, loadJson, other);
+            }
+        }
     }
 
-    private void broadcastNotificationMessage(int gameID, NotificationMessage message, Session notThisSession) throws IOException {
-        HashSet<Session> copy = new HashSet<>(webSocketSessions.get(gameID));
-        for (Session session : copy) {
-            if (session != notThisSession) {
-                if (session.isOpen()) {
-                    session.getRemote().sendString(new Gson().toJson(message));
-                } else {
-                    webSocketSessions.get(gameID).remove(session);
-                }
+    /*
+     * A MOVE_MADE message is never sent as state: a client that misses one can no longer
+     * follow the game, so the outbound queue must not drop it.
+     */
+    private void sendMove(int gameID, GameData gameData, String moveJson, String[] loadJson, Session session) {
+        if (Integer.valueOf(gameID).equals(moveUpdateGames.get(session))) {
+            send(moveJson, false, session);
+        } else {
+            if (loadJson[0] == null) {
+                loadJson[0] = GSON.toJson(new LoadGameMessage(gameData));
             }
+            send(loadJson[0], true, session);
         }
     }
 
-    private void broadcastLoadGameMessage(int gameID, LoadGameMessage message, Session notThisSession) throws IOException {
-        HashSet<Session> copy = new HashSet<>(webSocketSessions.get(gameID));
-        for (Session session : copy) {
-            if (session.isOpen()) {
-                if (session != notThisSession) {
-                    session.getRemote().sendString(new Gson().toJson(message));
-                }
-            } else {
-                webSocketSessions.get(gameID).remove(session);
+    /**
+     * Sends a message to every session watching the game except the given one, serialized
+     * once for all of them
+     */
+    private void broadcastMessage(int gameID, ServerMessage message, Session notThisSession) {
+        fanOut(gameID, GSON.toJson(message), isState(message), notThisSession);
+    }
+
+    private void fanOut(int gameID, String json, boolean state, Session notThisSession) {
+        for (Session session : webSocketSessions.get(gameID)) {
+            if (session != notThisSession) {
+                send(json, state, session);
             }
         }
     }
+
+    /*
+     * Hands the frame to the session's outbound queue and returns at once; a slow client
+     * only delays its own messages.
+     */
+    private void send(String json, boolean state, Session session) {
+        if (session.isOpen()) {
+            outboundQueues.computeIfAbsent(session, target -> new OutboundQueue(target, queueCapacity, backpressure))
+                    .offer(json, state);
+        }
+    }
+
+    private boolean isState(ServerMessage message) {
+        return message.getServerMessageType() == ServerMessage.ServerMessageType.LOAD_GAME;
+    }
 }
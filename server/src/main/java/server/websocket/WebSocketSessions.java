@@ -1,24 +1,73 @@
 package server.websocket;
 
 import org.eclipse.jetty.websocket.api.Session;
-import java.util.HashMap;
-import java.util.HashSet;
 
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+
+/**
+ * The sessions watching each game, and the games each session watches. Sessions of a game
+ * are kept in a copy-on-write set, since a game is broadcast to far more often than
+ * sessions join or leave it: a broadcast iterates a stable snapshot without copying or
+ * locking. Sets are changed only inside a compute on their map entry, and an entry is
+ * removed once its set is empty, so a set is never changed after it has left its map.
+ */
 public class WebSocketSessions {
 
-    public final HashMap<Integer, HashSet<Session>> sessionMap = new HashMap<>();
+    private final ConcurrentHashMap<Integer, Set<Session>> sessionsByGame = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Session, Set<Integer>> gamesBySession = new ConcurrentHashMap<>();
 
     public void add(int gameID, Session session) {
-        if (get(gameID) != null) {
-            sessionMap.get(gameID).add(session);
-        } else {
-            HashSet<Session> sessionSet = new HashSet<>();
-            sessionSet.add(session);
-            sessionMap.put(gameID, sessionSet);
-        }
+        sessionsByGame.compute(gameID, (id, sessions) -> {
+            if (sessions == null) {
+                sessions = new CopyOnWriteArraySet<>();
+            }
+            sessions.add(session);
+            return sessions;
+        });
+        gamesBySession.compute(session, (s, games) -> {
+            if (games == null) {
+                games = ConcurrentHashMap.newKeySet();
+            }
+            games.add(gameID);
+            return games;
+        });
     }
 
-    public void remove(int gameID, Session session) { sessionMap.get(gameID).remove(session); }
+    public void remove(int gameID, Session session) {
+        sessionsByGame.computeIfPresent(gameID, (id, sessions) -> {
+            sessions.remove(session);
+            return sessions.isEmpty() ? null : sessions;
+        });
+        gamesBySession.computeIfPresent(session, (s, games) -> {
+            games.remove(gameID);
+            return games.isEmpty() ? null : games;
+        });
+    }
 
-    public HashSet<Session> get(int gameID) { return sessionMap.get(gameID); }
+    /**
+     * Removes a session from every game it was watching, for when it closes
+     */
+    public void removeSession(Session session) {
+        Set<Integer> games = gamesBySession.remove(session);
+        if (games != null) {
+            for (int gameID : games) {
+                sessionsByGame.computeIfPresent(gameID, (id, sessions) -> {
+                    sessions.remove(session);
+                    return sessions.isEmpty() ? null : sessions;
+                });
+            }
+        }
+    }
+
+    /**
+     * @return the sessions watching a game, empty if there are none. The set is a
+     * snapshot-safe view that may be iterated while sessions come and go.
+     */
+    public Set<Session> get(int gameID) {
+        Set<Session> sessions = sessionsByGame.get(gameID);
+        return sessions == null ? Set.of() : Collections.unmodifiableSet(sessions);
+    }
 }
@@ -0,0 +1,127 @@
+package service;
+
+import dataaccess.AuthDAO;
+import dataaccess.DataAccessException;
+import model.AuthData;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A read-through cache in front of an AuthDAO. Every request checks its token, and tokens
+ * only change on register, login, logout and clear, so a lookup is answered from memory
+ * for up to ttl after the database last confirmed it. A token the database does not know
+ * is remembered as invalid for the much shorter negativeTtl, so a client retrying a bad
+ * token cannot turn each retry into a query.
+ * <p>
+ * Tokens created or deleted through this cache take effect immediately: a deleted token
+ * is replaced by an invalid entry before the database row goes, and a lookup only stores
+ * what it read if the entry it started from is still there, so a lookup racing a logout
+ * or clear cannot bring the token back.
+ * <p>
+ * At most maxSize tokens are held; past that, expired entries and then the ones closest
+ * to expiring are dropped.
+ */
+public class AuthCache implements AuthDAO {
+
+    private static final long DEFAULT_TTL_MILLIS = 5 * 60 * 1000;
+    private static final long DEFAULT_NEGATIVE_TTL_MILLIS = 5 * 1000;
+    private static final int DEFAULT_MAX_SIZE = 10_000;
+
+    private final AuthDAO authDao;
+    private final long ttlMillis;
+    private final long negativeTtlMillis;
+    private final int maxSize;
+    private final ConcurrentHashMap<String, Entry> tokens = new ConcurrentHashMap<>();
+    private final AtomicLong clears = new AtomicLong();
+
+    /*
+     * authData is null for a token known to be invalid
+     */
+    private record Entry(AuthData authData, long expiresAt) {}
+
+    public AuthCache(AuthDAO authDao) {
+        this(authDao, DEFAULT_TTL_MILLIS, DEFAULT_NEGATIVE_TTL_MILLIS, DEFAULT_MAX_SIZE);
+    }
+
+    public AuthCache(AuthDAO authDao, long ttlMillis, long negativeTtlMillis, int maxSize) {
+        this.authDao = authDao;
+        this.ttlMillis = ttlMillis;
+        this.negativeTtlMillis = negativeTtlMillis;
+        this.maxSize = maxSize;
+    }
+
+    public AuthData createAuth(String username) throws DataAccessException {
+        AuthData authData = authDao.createAuth(username);
+        put(authData.authToken(), authData, ttlMillis);
+        return authData;
+    }
+
+    public AuthData getAuth(String authToken) throws DataAccessException {
+        if (authToken == null) {
+            return null;
+        }
+        Entry seen = tokens.get(authToken);
+        if (seen != null && seen.expiresAt() > System.currentTimeMillis()) {
+            return seen.authData();
+        }
+        long clearsBefore = clears.get();
+        AuthData authData = authDao.getAuth(authToken);
+        Entry read = entry(authData, authData == null ? negativeTtlMillis : ttlMillis);
+        boolean stored = seen == null ? tokens.putIfAbsent(authToken, read) == null
+                : tokens.replace(authToken, seen, read);
+        if (stored && clears.get() != clearsBefore) {
+            tokens.remove(authToken, read);
+        }
+        return authData;
+    }
+
+    public void deleteAuth(AuthData authData) throws DataAccessException {
+        String authToken = authData.authToken();
+        Entry deleted = entry(null, ttlMillis);
+        tokens.put(authToken, deleted);
+        try {
+            authDao.deleteAuth(authData);
+        } catch (DataAccessException ex) {
+            tokens.remove(authToken, deleted);
+            throw ex;
+        }
+    }
+
+    public void clearAuth() throws DataAccessException {
+        clears.incrementAndGet();
+        tokens.clear();
+        authDao.clearAuth();
+        clears.incrementAndGet();
+        tokens.clear();
+    }
+
+    private void put(String authToken, AuthData authData, long ttl) {
+        tokens.put(authToken, entry(authData, ttl));
+    }
+
+    private Entry entry(AuthData authData, long ttl) {
+        if (tokens.size() >= maxSize) {
+            trim();
+        }
+        return new Entry(authData, System.currentTimeMillis() + ttl);
+    }
+
+    /*
+     * Runs only when the cache is full, and frees a tenth of it so the next few puts
+     * do not have to sweep again.
+     */
+    private void trim() {
+        long now = System.currentTimeMillis();
+        tokens.values().removeIf(entry -> entry.expiresAt() <= now);
+        int excess = tokens.size() - maxSize * 9 / 10;
+        if (excess <= 0) {
+            return;
+        }
+        tokens.entrySet().stream()
+                .sorted(Map.Entry.comparingByValue((a, b) -> Long.compare(a.expiresAt(), b.expiresAt())))
+                .limit(excess)
+                .forEach(entry -> tokens.remove(entry.getKey(), entry.getValue()));
+    }
+}
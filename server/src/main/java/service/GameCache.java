@@ -0,0 +1,264 @@
+package service;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.PositionCodec;
+import dataaccess.DataAccessException;
+import dataaccess.GameDAO;
+import model.AuthData;
+import model.GameData;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import result.ListResult;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps active games in memory in front of a GameDAO. Once a game has been loaded, the
+ * cached GameData is the authoritative copy: getGame hands out the same instance every
+ * time, so a move made on it is visible to the next command without a database read.
+ * The cache holds its own copy of each game, never an instance the GameDAO keeps, so
+ * nothing reaches the GameDAO except through a flush.
+ * <p>
+ * Player changes, new games and clears are written through at once. Moves and game
+ * state are written behind: each game's pending moves and latest position are
+ * coalesced and flushed by a background thread every flushInterval, so any number of
+ * moves made between flushes cost one transaction. Games nobody has read or queued a
+ * write for in idleTimeout are dropped from memory once their writes are flushed; a
+ * read, a queued write and an eviction of the same game never interleave.
+ */
+public class GameCache implements GameDAO {
+
+    private static final Logger LOG = LoggerFactory.getLogger(GameCache.class);
+    private static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 100;
+    private static final long DEFAULT_IDLE_TIMEOUT_MILLIS = 10 * 60 * 1000;
+
+    private final GameDAO gameDao;
+    private final long idleTimeoutMillis;
+    private final ScheduledExecutorService writer;
+    private final ConcurrentHashMap<Integer, CachedGame> games = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, PendingWrite> pending = new ConcurrentHashMap<>();
+    private final Object flushLock = new Object();
+
+    public GameCache(GameDAO gameDao) {
+        this(gameDao, DEFAULT_FLUSH_INTERVAL_MILLIS, DEFAULT_IDLE_TIMEOUT_MILLIS);
+    }
+
+    public GameCache(GameDAO gameDao, long flushIntervalMillis, long idleTimeoutMillis) {
+        this.gameDao = gameDao;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        writer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "game-write-behind");
+            thread.setDaemon(true);
+            return thread;
+        });
+        writer.scheduleWithFixedDelay(() -> {
+            flush();
+            evictIdle();
+        }, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public GameData create(String gameName) throws DataAccessException {
+        CachedGame cached = new CachedGame(copyOf(gameDao.create(gameName)));
+        games.put(cached.gameData.gameID(), cached);
+        return cached.gameData;
+    }
+
+    public GameData getGame(int gameID) throws DataAccessException {
+        CachedGame cached = games.computeIfPresent(gameID, (id, current) -> current.touch());
+        if (cached == null) {
+            GameData gameData = gameDao.getGame(gameID);
+            if (gameData == null) {
+                return null;
+            }
+            GameData copy = copyOf(gameData);
+            cached = games.compute(gameID, (id, current) -> (current == null ? new CachedGame(copy) : current).touch());
+        }
+        return cached.gameData;
+    }
+
+    /**
+     * Writes a player change through to the database, or queues the game's position to be
+     * written behind when playerColor is neither WHITE nor BLACK
+     */
+    public int updateGame(GameData gameData, AuthData authData,
+                          ChessGame.TeamColor playerColor) throws DataAccessException {
+        int gameID = gameData.gameID();
+        if (playerColor == ChessGame.TeamColor.WHITE || playerColor == ChessGame.TeamColor.BLACK) {
+            int result = gameDao.updateGame(gameData, authData, playerColor);
+            String username = authData == null ? null : authData.username();
+            games.computeIfPresent(gameID, (id, cached) -> cached.withPlayer(playerColor, username));
+            return result;
+        }
+        CachedGame cached = games.computeIfAbsent(gameID, id -> new CachedGame(copyOf(gameData)));
+        enqueue(gameID, cached.gameData, null, true);
+        return 0;
+    }
+
+    public void appendMove(GameData gameData, ChessMove move) {
+        enqueue(gameData.gameID(), gameData, move, false);
+    }
+
+    public void appendMoves(GameData gameData, List<ChessMove> moves) {
+        for (ChessMove move : moves) {
+            enqueue(gameData.gameID(), gameData, move, false);
+        }
+    }
+
+    public Collection<ListResult> listGames() throws DataAccessException {
+        return gameDao.listGames();
+    }
+
+    public void clearGame() throws DataAccessException {
+        synchronized (flushLock) {
+            pending.clear();
+            games.clear();
+            gameDao.clearGame();
+        }
+    }
+
+    /**
+     * Stops the background writer and writes everything still queued
+     */
+    public void close() {
+        writer.shutdown();
+        try {
+            writer.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    /**
+     * Writes every queued move and position to the database now. Games whose write fails
+     * stay queued for the next flush.
+     */
+    public void flush() {
+        synchronized (flushLock) {
+            for (Integer gameID : new ArrayList<>(pending.keySet())) {
+                PendingWrite write = pending.remove(gameID);
+                if (write == null) {
+                    continue;
+                }
+                try {
+                    write.writeTo(gameDao);
+                } catch (DataAccessException | RuntimeException ex) {
+                    LOG.warn("Unable to save game {}, will retry", gameID, ex);
+                    pending.merge(gameID, write, (newer, failed) -> failed.followedBy(newer));
+                }
+            }
+        }
+    }
+
+    /*
+     * The position is copied when the write is queued, so the flush never reads a game
+     * another thread is making a move on. The write is queued inside a compute on the
+     * cached game so that evictIdle, which computes on the same key, sees it. A game
+     * evicted while a command was making a move on it is put back, so the next command
+     * sees the move rather than a database row the flush has not reached yet.
+     */
+    private void enqueue(int gameID, GameData gameData, ChessMove move, boolean snapshot) {
+        byte[] position = PositionCodec.encode(gameData.game());
+        games.compute(gameID, (key, cached) -> {
+            pending.compute(gameID, (id, write) -> {
+                if (write == null) {
+                    write = new PendingWrite();
+                }
+                write.add(gameData, position, move, snapshot);
+                return write;
+            });
+            return (cached == null ? new CachedGame(gameData) : cached).touch();
+        });
+    }
+
+    /*
+     * Runs under flushLock, so no write for a game is on its way to the database while
+     * the game is considered.
+     */
+    void evictIdle() {
+        long cutoff = System.currentTimeMillis() - idleTimeoutMillis;
+        synchronized (flushLock) {
+            for (Integer gameID : games.keySet()) {
+                games.computeIfPresent(gameID, (id, cached) ->
+                        cached.lastAccess < cutoff && !pending.containsKey(id) ? null : cached);
+            }
+        }
+    }
+
+    /*
+     * A copy of a game that shares nothing with the one the GameDAO holds. Only the
+     * position is copied, not the moves that can be taken back.
+     */
+    private static GameData copyOf(GameData gameData) {
+        return new GameData(gameData.gameID(), gameData.whiteUsername(), gameData.blackUsername(),
+                gameData.gameName(), PositionCodec.decode(PositionCodec.encode(gameData.game())));
+    }
+
+    private static class CachedGame {
+        private final GameData gameData;
+        private volatile long lastAccess = System.currentTimeMillis();
+
+        CachedGame(GameData gameData) {
+            this.gameData = gameData;
+        }
+
+        CachedGame touch() {
+            lastAccess = System.currentTimeMillis();
+            return this;
+        }
+
+        CachedGame withPlayer(ChessGame.TeamColor playerColor, String username) {
+            return new CachedGame(playerColor == ChessGame.TeamColor.WHITE
+                    ? gameData.setWhiteUsername(username) : gameData.setBlackUsername(username));
+        }
+    }
+
+    /**
+     * The moves made on one game since its last flush, and its position after the last
+     * of them. Only touched inside a ConcurrentHashMap compute or after being removed from
+     * the map, so it needs no locking of its own.
+     */
+    private static class PendingWrite {
+        private final List<ChessMove> moves = new ArrayList<>();
+        private GameData gameData;
+        private byte[] position;
+        private boolean snapshot;
+
+        void add(GameData gameData, byte[] position, ChessMove move, boolean snapshot) {
+            this.gameData = gameData;
+            this.position = position;
+            this.snapshot |= snapshot;
+            if (move != null) {
+                moves.add(move);
+            }
+        }
+
+        PendingWrite followedBy(PendingWrite newer) {
+            moves.addAll(newer.moves);
+            gameData = newer.gameData;
+            position = newer.position;
+            snapshot |= newer.snapshot;
+            return this;
+        }
+
+        void writeTo(GameDAO gameDao) throws DataAccessException {
+            GameData copy = new GameData(gameData.gameID(), gameData.whiteUsername(), gameData.blackUsername(),
+                    gameData.gameName(), PositionCodec.decode(position));
+            if (!moves.isEmpty()) {
+                gameDao.appendMoves(copy, moves);
+                moves.clear();
+            }
+            if (snapshot) {
+                gameDao.updateGame(copy, null, null);
+                snapshot = false;
+            }
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package service;
 
 import chess.ChessGame;
+import chess.ChessMove;
 import dataaccess.AuthDAO;
 import dataaccess.DataAccessException;
 import dataaccess.GameDAO;
@@ -76,4 +77,8 @@ public class GameService {
         if (authToken != null) { authData = authDao.getAuth(authToken); }
         gameDao.updateGame(gameData, authData, playerColor);
     }
+
+    public void appendMove(GameData gameData, ChessMove move) throws DataAccessException {
+        gameDao.appendMove(gameData, move);
+    }
 }
@@ -54,10 +54,8 @@ public class UserService {
     }
 
     public String getUsername(String authToken) throws DataAccessException {
-        if (authDao.getAuth(authToken) != null) {
-            return authDao.getAuth(authToken).username();
-        }
-        return null;
+        AuthData authData = authDao.getAuth(authToken);
+        return authData == null ? null : authData.username();
     }
 
     private boolean verifyPassword(String hashedPassword, String password) {
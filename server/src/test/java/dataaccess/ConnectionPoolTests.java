@@ -0,0 +1,122 @@
+package dataaccess;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+public class ConnectionPoolTests {
+
+    private final List<FakeJdbc.FakeConnection> opened = new CopyOnWriteArrayList<>();
+    private ConnectionPool pool;
+
+    @AfterEach
+    public void closePool() {
+        if (pool != null) {
+            pool.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Borrow Blocks At Max Size Then Times Out")
+    public void borrowTimesOutAtMaxSize() throws Exception {
+        pool = newPool(new ConnectionPool.Settings(2, 100, 300_000, 30_000, 2, 8));
+        Connection first = pool.borrow();
+        Connection second = pool.borrow();
+        Assertions.assertThrows(DataAccessException.class, pool::borrow, "Borrowed past the pool's max size");
+        Assertions.assertEquals(1, pool.stats().timeouts(), "Timed out borrow not counted");
+
+        first.close();
+        Connection third = pool.borrow();
+        Assertions.assertEquals(2, opened.size(), "Returned connection not reused");
+        third.close();
+        second.close();
+        Assertions.assertEquals(2, pool.stats().idle(), "Returned connections not idle");
+    }
+
+    @Test
+    @DisplayName("Waiting Borrow Gets Returned Connection")
+    public void waitingBorrowGetsReturnedConnection() throws Exception {
+        pool = newPool(new ConnectionPool.Settings(1, 5_000, 300_000, 30_000, 2, 8));
+        Connection held = pool.borrow();
+        CompletableFuture<Connection> waiting = CompletableFuture.supplyAsync(() -> {
+            try {
+                return pool.borrow();
+            } catch (DataAccessException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        Thread.sleep(50);
+        Assertions.assertFalse(waiting.isDone(), "Borrow did not wait for a connection");
+        held.close();
+        waiting.get(5, TimeUnit.SECONDS).close();
+        Assertions.assertEquals(1, opened.size(), "Waiting borrow opened a new connection");
+        Assertions.assertEquals(1, pool.stats().waits(), "Wait not counted");
+    }
+
+    @Test
+    @DisplayName("Returned Lease Cannot Be Used")
+    public void returnedLeaseCannotBeUsed() throws Exception {
+        pool = newPool(ConnectionPool.Settings.DEFAULT);
+        Connection lease = pool.borrow();
+        lease.setAutoCommit(false);
+        lease.close();
+        Assertions.assertTrue(lease.isClosed(), "Returned lease not reported closed");
+        Assertions.assertThrows(SQLException.class, () -> lease.prepareStatement("SELECT 1"),
+                "Returned lease still usable");
+        FakeJdbc.FakeConnection connection = opened.getFirst();
+        Assertions.assertFalse(connection.closed, "Returning a lease closed the real connection");
+        Assertions.assertEquals(1, connection.rollbacks, "Open transaction not rolled back on return");
+        Assertions.assertTrue(connection.autoCommit, "Auto-commit not restored on return");
+    }
+
+    @Test
+    @DisplayName("Invalid Idle Connection Replaced")
+    public void invalidIdleConnectionReplaced() throws Exception {
+        pool = newPool(new ConnectionPool.Settings(2, 100, 300_000, 0, 2, 8));
+        pool.borrow().close();
+        Thread.sleep(5);
+        opened.getFirst().valid = false;
+        pool.borrow().close();
+        Assertions.assertEquals(2, opened.size(), "Invalid connection lent out again");
+        Assertions.assertTrue(opened.getFirst().closed, "Invalid connection not closed");
+        Assertions.assertEquals(1, pool.stats().open(), "Discarded connection still counted as open");
+    }
+
+    @Test
+    @DisplayName("Idle Connections Evicted")
+    public void idleConnectionsEvicted() throws Exception {
+        pool = newPool(new ConnectionPool.Settings(2, 100, 20, 30_000, 2, 8));
+        pool.borrow().close();
+        Thread.sleep(50);
+        pool.evictIdle();
+        Assertions.assertTrue(opened.getFirst().closed, "Idle connection not closed by the sweep");
+        Assertions.assertEquals(1, pool.stats().evicted(), "Eviction not counted");
+        Assertions.assertEquals(0, pool.stats().open(), "Evicted connection still counted as open");
+    }
+
+    @Test
+    @DisplayName("Server Prepared Statements Added To URL")
+    public void serverPreparedStatementsAddedToUrl() {
+        Assertions.assertEquals("jdbc:mysql://localhost:3306?useServerPrepStmts=true",
+                ConnectionPool.withServerPrepStmts("jdbc:mysql://localhost:3306"), "Parameter not added");
+        Assertions.assertEquals("jdbc:mysql://localhost:3306?useSSL=false&useServerPrepStmts=true",
+                ConnectionPool.withServerPrepStmts("jdbc:mysql://localhost:3306?useSSL=false"),
+                "Parameter not appended to an existing query");
+    }
+
+    private ConnectionPool newPool(ConnectionPool.Settings settings) {
+        return new ConnectionPool(() -> {
+            FakeJdbc.FakeConnection connection = new FakeJdbc.FakeConnection();
+            opened.add(connection);
+            return connection.connection;
+        }, settings);
+    }
+}
@@ -0,0 +1,110 @@
+package dataaccess;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * JDBC connections and statements that only record what is done to them, for testing the
+ * connection pool and statement cache without a database
+ */
+class FakeJdbc {
+
+    static class FakeConnection implements InvocationHandler {
+        final Connection connection = (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, this);
+        final List<FakeStatement> statements = new CopyOnWriteArrayList<>();
+        volatile boolean closed;
+        volatile boolean valid = true;
+        volatile boolean autoCommit = true;
+        volatile int rollbacks;
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            switch (method.getName()) {
+                case "close" -> closed = true;
+                case "isClosed" -> {
+                    return closed;
+                }
+                case "isValid" -> {
+                    return valid && !closed;
+                }
+                case "getAutoCommit" -> {
+                    return autoCommit;
+                }
+                case "setAutoCommit" -> autoCommit = (Boolean) args[0];
+                case "rollback" -> rollbacks++;
+                case "prepareStatement" -> {
+                    FakeStatement statement = new FakeStatement((String) args[0]);
+                    statements.add(statement);
+                    return statement.statement;
+                }
+                case "equals" -> {
+                    return proxy == args[0];
+                }
+                case "hashCode" -> {
+                    return System.identityHashCode(proxy);
+                }
+                default -> {
+                    return defaultValue(method.getReturnType());
+                }
+            }
+            return null;
+        }
+    }
+
+    static class FakeStatement implements InvocationHandler {
+        final PreparedStatement statement = (PreparedStatement) Proxy.newProxyInstance(
+                PreparedStatement.class.getClassLoader(), new Class<?>[]{PreparedStatement.class}, this);
+        final String sql;
+        volatile boolean closed;
+        volatile int parametersCleared;
+        volatile int batchesCleared;
+        volatile int executions;
+
+        FakeStatement(String sql) {
+            this.sql = sql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            switch (method.getName()) {
+                case "close" -> closed = true;
+                case "isClosed" -> {
+                    return closed;
+                }
+                case "clearParameters" -> parametersCleared++;
+                case "clearBatch" -> batchesCleared++;
+                case "executeUpdate" -> {
+                    executions++;
+                    return 1;
+                }
+                case "equals" -> {
+                    return proxy == args[0];
+                }
+                case "hashCode" -> {
+                    return System.identityHashCode(proxy);
+                }
+                default -> {
+                    return defaultValue(method.getReturnType());
+                }
+            }
+            return null;
+        }
+    }
+
+    private static Object defaultValue(Class<?> type) {
+        if (type == boolean.class) {
+            return false;
+        } else if (type == int.class) {
+            return 0;
+        } else if (type == long.class) {
+            return 0L;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,114 @@
+package dataaccess;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import model.GameData;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+
+public class FileGameDAOTests {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("Returned Game Is A Copy")
+    public void returnedGameIsCopy() throws Exception {
+        try (FileGameDAO dao = new FileGameDAO(directory)) {
+            GameData created = dao.create("copy");
+            makeMove(created, "e2", "e4");
+            Assertions.assertEquals(new ChessGame(), dao.getGame(created.gameID()).game(),
+                    "Unlogged move changed the stored game");
+            Assertions.assertNotSame(dao.getGame(created.gameID()).game(), dao.getGame(created.gameID()).game(),
+                    "Stored game handed out");
+        }
+    }
+
+    @Test
+    @DisplayName("Compaction Keeps Only Logged Moves")
+    public void compactionKeepsOnlyLoggedMoves() throws Exception {
+        int gameID;
+        ChessGame expected;
+        try (FileGameDAO dao = new FileGameDAO(directory)) {
+            GameData game = dao.getGame(dao.create("compact").gameID());
+            gameID = game.gameID();
+            appendMove(dao, game, "e2", "e4");
+            appendMove(dao, game, "e7", "e5");
+            expected = dao.getGame(gameID).game();
+
+            makeMove(game, "g1", "f3");
+            dao.compact();
+            dao.appendMove(game, new ChessMove(position("g1"), position("f3"), null));
+            expected.makeMove(new ChessMove(position("g1"), position("f3"), null));
+        }
+
+        try (FileGameDAO reopened = new FileGameDAO(directory)) {
+            Assertions.assertEquals(expected, reopened.getGame(gameID).game(),
+                    "Moves logged after compaction applied twice or lost");
+        }
+    }
+
+    @Test
+    @DisplayName("Moves Replayed After Restart")
+    public void movesReplayedAfterRestart() throws Exception {
+        int gameID;
+        ChessGame expected;
+        try (FileGameDAO dao = new FileGameDAO(directory)) {
+            GameData game = dao.create("restart");
+            gameID = game.gameID();
+            appendMove(dao, game, "d2", "d4");
+            appendMove(dao, game, "d7", "d5");
+            expected = game.game();
+        }
+
+        try (FileGameDAO reopened = new FileGameDAO(directory)) {
+            Assertions.assertEquals(expected, reopened.getGame(gameID).game(), "Replayed game differs");
+        }
+    }
+
+    @Test
+    @DisplayName("Failed Batch Logs None Of Its Moves")
+    public void failedBatchLogsNoMoves() throws Exception {
+        int gameID;
+        ChessGame expected;
+        try (FileGameDAO dao = new FileGameDAO(directory)) {
+            GameData game = dao.create("batch");
+            gameID = game.gameID();
+            ChessMove first = makeMove(game, "e2", "e4");
+            ChessMove second = makeMove(game, "e7", "e5");
+            ChessMove offBoard = new ChessMove(new ChessPosition(9, 1), position("a1"), null);
+            Assertions.assertThrows(DataAccessException.class,
+                    () -> dao.appendMoves(game, List.of(first, second, offBoard)), "Unencodable move logged");
+
+            // The caller retries the moves that were valid
+            dao.appendMoves(game, List.of(first, second));
+            expected = game.game();
+        }
+
+        try (FileGameDAO reopened = new FileGameDAO(directory)) {
+            Assertions.assertEquals(expected, reopened.getGame(gameID).game(),
+                    "Moves of the failed batch replayed as well as the retry");
+        }
+    }
+
+    private static void appendMove(FileGameDAO dao, GameData game, String from, String to) throws Exception {
+        ChessMove move = makeMove(game, from, to);
+        dao.appendMoves(game, List.of(move));
+    }
+
+    private static ChessMove makeMove(GameData game, String from, String to) throws Exception {
+        ChessMove move = new ChessMove(position(from), position(to), null);
+        game.game().makeMove(move);
+        return move;
+    }
+
+    private static ChessPosition position(String square) {
+        return new ChessPosition(square.charAt(1) - '0', square.charAt(0) - 'a' + 1);
+    }
+}
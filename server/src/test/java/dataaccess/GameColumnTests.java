@@ -0,0 +1,66 @@
+package dataaccess;
+
+import chess.ChessGame;
+import chess.ChessPiece;
+import chess.ChessPosition;
+import chess.PositionCodec;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reading the game column of gameData, which needs no database
+ */
+public class GameColumnTests {
+
+    /*
+     * A game column as the JSON-storing MySqlGameDAO wrote it, after
+     * 1. e4 d5 2. exd5 Nf6 3. Nf3 Qxd5 4. Rg1 e5.
+     */
+    static final String LEGACY_GAME_JSON = "{\"currentTurn\":\"WHITE\",\"currentBoard\":{\"board\":["
+            + "[{\"pieceColor\":\"WHITE\",\"type\":\"ROOK\"},{\"pieceColor\":\"WHITE\",\"type\":\"KNIGHT\"},"
+            + "{\"pieceColor\":\"WHITE\",\"type\":\"BISHOP\"},{\"pieceColor\":\"WHITE\",\"type\":\"QUEEN\"},"
+            + "{\"pieceColor\":\"WHITE\",\"type\":\"KING\"},{\"pieceColor\":\"WHITE\",\"type\":\"BISHOP\"},"
+            + "{\"pieceColor\":\"WHITE\",\"type\":\"ROOK\"},null],"
+            + "[{\"pieceColor\":\"WHITE\",\"type\":\"PAWN\"},{\"pieceColor\":\"WHITE\",\"type\":\"PAWN\"},"
+            + "{\"pieceColor\":\"WHITE\",\"type\":\"PAWN\"},{\"pieceColor\":\"WHITE\",\"type\":\"PAWN\"},null,"
+            + "{\"pieceColor\":\"WHITE\",\"type\":\"PAWN\"},{\"pieceColor\":\"WHITE\",\"type\":\"PAWN\"},"
+            + "{\"pieceColor\":\"WHITE\",\"type\":\"PAWN\"}],"
+            + "[null,null,null,null,null,{\"pieceColor\":\"WHITE\",\"type\":\"KNIGHT\"},null,null],"
+            + "[null,null,null,null,null,null,null,null],"
+            + "[null,null,null,{\"pieceColor\":\"BLACK\",\"type\":\"QUEEN\"},{\"pieceColor\":\"BLACK\",\"type\":\"PAWN\"},"
+            + "null,null,null],"
+            + "[null,null,null,null,null,{\"pieceColor\":\"BLACK\",\"type\":\"KNIGHT\"},null,null],"
+            + "[{\"pieceColor\":\"BLACK\",\"type\":\"PAWN\"},{\"pieceColor\":\"BLACK\",\"type\":\"PAWN\"},"
+            + "{\"pieceColor\":\"BLACK\",\"type\":\"PAWN\"},null,null,{\"pieceColor\":\"BLACK\",\"type\":\"PAWN\"},"
+            + "{\"pieceColor\":\"BLACK\",\"type\":\"PAWN\"},{\"pieceColor\":\"BLACK\",\"type\":\"PAWN\"}],"
+            + "[{\"pieceColor\":\"BLACK\",\"type\":\"ROOK\"},{\"pieceColor\":\"BLACK\",\"type\":\"KNIGHT\"},"
+            + "{\"pieceColor\":\"BLACK\",\"type\":\"BISHOP\"},null,{\"pieceColor\":\"BLACK\",\"type\":\"KING\"},"
+            + "{\"pieceColor\":\"BLACK\",\"type\":\"BISHOP\"},null,{\"pieceColor\":\"BLACK\",\"type\":\"ROOK\"}]]},"
+            + "\"lastMove\":{\"startPosition\":{\"row\":7,\"col\":5},\"endPosition\":{\"row\":5,\"col\":5}},"
+            + "\"lastMovePiece\":{\"pieceColor\":\"BLACK\",\"type\":\"PAWN\"},"
+            + "\"movePositionCollection\":[{\"row\":8,\"col\":7},{\"row\":4,\"col\":5},{\"row\":2,\"col\":5},"
+            + "{\"row\":1,\"col\":7},{\"row\":1,\"col\":8},{\"row\":8,\"col\":4},{\"row\":7,\"col\":4},"
+            + "{\"row\":7,\"col\":5}]}";
+
+    static final String LEGACY_GAME_FEN = "rnb1kb1r/ppp2ppp/5n2/3qp3/8/5N2/PPPP1PPP/RNBQKBR1 w Qkq e6 0 1";
+
+    @Test
+    @DisplayName("Legacy JSON Game Column Read")
+    public void legacyJsonGameColumnRead() {
+        ChessGame game = MySqlGameDAO.decodeGame(LEGACY_GAME_JSON.getBytes(StandardCharsets.UTF_8));
+        Assertions.assertEquals(ChessGame.fromFen(LEGACY_GAME_FEN), game, "Legacy game row not read");
+        Assertions.assertEquals(new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING),
+                game.getBoard().getPiece(new ChessPosition(1, 5)), "King missing from a legacy game row");
+        Assertions.assertFalse(game.validMoves(new ChessPosition(1, 5)).isEmpty(), "No moves for a legacy king");
+    }
+
+    @Test
+    @DisplayName("Binary Game Column Read")
+    public void binaryGameColumnRead() {
+        ChessGame game = ChessGame.fromFen(LEGACY_GAME_FEN);
+        Assertions.assertEquals(game, MySqlGameDAO.decodeGame(PositionCodec.encode(game)), "Binary game row not read");
+    }
+}
@@ -0,0 +1,150 @@
+package dataaccess;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import model.AuthData;
+import model.GameData;
+import model.UserData;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mindrot.jbcrypt.BCrypt;
+import request.RegisterRequest;
+import result.ListResult;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+public class MemoryDAOsTests {
+
+    private final MemoryAuthDAO authDao = new MemoryAuthDAO();
+    private final MemoryGameDAO gameDao = new MemoryGameDAO();
+    private final MemoryUserDAO userDao = new MemoryUserDAO();
+
+    @Test
+    @DisplayName("Success MemoryUserDAO createUser() Stores Hashed Password")
+    public void successCreateUser() throws DataAccessException {
+        UserData created = userDao.createUser(new RegisterRequest("username1", "password1", "fake1@email.com"));
+        Assertions.assertEquals("username1", created.username(), "createUser() returned incorrect username");
+
+        UserData stored = userDao.getUser("username1");
+        Assertions.assertNotEquals("password1", stored.password(), "createUser() stored the password in plain text");
+        Assertions.assertTrue(BCrypt.checkpw("password1", stored.password()), "createUser() stored a wrong hash");
+        Assertions.assertEquals("fake1@email.com", stored.email(), "getUser() returned incorrect email");
+    }
+
+    @Test
+    @DisplayName("Fail MemoryUserDAO createUser() Duplicate Username")
+    public void failCreateUser() throws DataAccessException {
+        userDao.createUser(new RegisterRequest("username1", "password1", "fake1@email.com"));
+        Assertions.assertThrows(DataAccessException.class,
+                () -> userDao.createUser(new RegisterRequest("username1", "password2", "fake2@email.com")),
+                "createUser() accepted a taken username");
+        Assertions.assertTrue(BCrypt.checkpw("password1", userDao.getUser("username1").password()),
+                "Duplicate createUser() replaced the stored user");
+    }
+
+    @Test
+    @DisplayName("Fail MemoryUserDAO getUser()")
+    public void failGetUser() throws DataAccessException {
+        userDao.createUser(new RegisterRequest("username1", "password1", "fake1@email.com"));
+        Assertions.assertNull(userDao.getUser("username2"), "getUser() found a user that does not exist");
+        Assertions.assertNull(userDao.getUser(null), "getUser() found a user for null");
+        userDao.clearUser();
+        Assertions.assertNull(userDao.getUser("username1"), "clearUser() left a user");
+    }
+
+    @Test
+    @DisplayName("Success MemoryAuthDAO getAuth() And deleteAuth()")
+    public void successGetAndDeleteAuth() throws DataAccessException {
+        AuthData authData = authDao.createAuth("username1");
+        Assertions.assertEquals(authData, authDao.getAuth(authData.authToken()), "getAuth() returned incorrect auth");
+
+        authDao.deleteAuth(authData);
+        Assertions.assertNull(authDao.getAuth(authData.authToken()), "deleteAuth() left the token");
+        Assertions.assertNull(authDao.getAuth(null), "getAuth() found a token for null");
+    }
+
+    @Test
+    @DisplayName("Fail MemoryAuthDAO createAuth()")
+    public void failCreateAuth() {
+        Assertions.assertThrows(DataAccessException.class, () -> authDao.createAuth(null),
+                "createAuth() accepted a null username");
+    }
+
+    @Test
+    @DisplayName("Success MemoryAuthDAO getAuthByUsername()")
+    public void successGetAuthByUsername() throws DataAccessException {
+        AuthData first = authDao.createAuth("username1");
+        AuthData second = authDao.createAuth("username1");
+        AuthData other = authDao.createAuth("username2");
+        Assertions.assertEquals(Set.of(first, second), Set.copyOf(authDao.getAuthByUsername("username1")),
+                "getAuthByUsername() returned incorrect tokens");
+
+        authDao.deleteAuth(first);
+        Assertions.assertEquals(List.of(second), List.copyOf(authDao.getAuthByUsername("username1")),
+                "deleteAuth() left the token in the username index");
+        authDao.deleteAuth(second);
+        Assertions.assertTrue(authDao.getAuthByUsername("username1").isEmpty(), "Deleted tokens still indexed");
+
+        authDao.clearAuth();
+        Assertions.assertTrue(authDao.getAuthByUsername("username2").isEmpty(), "clearAuth() left the index");
+        Assertions.assertNull(authDao.getAuth(other.authToken()), "clearAuth() left a token");
+    }
+
+    @Test
+    @DisplayName("Success MemoryGameDAO create() And clearGame()")
+    public void successCreateAndClearGame() throws DataAccessException {
+        Assertions.assertEquals(1, gameDao.create("game1").gameID(), "First game ID is not 1");
+        Assertions.assertEquals(2, gameDao.create("game2").gameID(), "Game IDs not sequential");
+        Collection<ListResult> games = gameDao.listGames();
+        Assertions.assertEquals(Set.of("game1", "game2"),
+                games.stream().map(ListResult::gameName).collect(Collectors.toSet()), "listGames() incorrect");
+
+        gameDao.clearGame();
+        Assertions.assertNull(gameDao.getGame(1), "clearGame() left a game");
+        Assertions.assertEquals(1, gameDao.create("game3").gameID(), "clearGame() did not restart IDs");
+    }
+
+    @Test
+    @DisplayName("Success MemoryGameDAO updateGame() Keeps Other Player")
+    public void successUpdateGameKeepsOtherPlayer() throws DataAccessException {
+        GameData stale = gameDao.create("game1");
+        gameDao.updateGame(stale, new AuthData("token1", "white"), ChessGame.TeamColor.WHITE);
+        gameDao.updateGame(stale, new AuthData("token2", "black"), ChessGame.TeamColor.BLACK);
+        GameData stored = gameDao.getGame(stale.gameID());
+        Assertions.assertEquals("white", stored.whiteUsername(), "Stale update overwrote the white player");
+        Assertions.assertEquals("black", stored.blackUsername(), "updateGame() did not set the black player");
+
+        gameDao.updateGame(stale, null, ChessGame.TeamColor.WHITE);
+        stored = gameDao.getGame(stale.gameID());
+        Assertions.assertNull(stored.whiteUsername(), "updateGame() with no auth did not clear the player");
+        Assertions.assertEquals("black", stored.blackUsername(), "Clearing white cleared black");
+    }
+
+    @Test
+    @DisplayName("Success MemoryGameDAO updateGame() And appendMoves() Store Game")
+    public void successStoreGame() throws Exception {
+        GameData gameData = gameDao.create("game1");
+        gameDao.updateGame(gameData, new AuthData("token1", "white"), ChessGame.TeamColor.WHITE);
+
+        ChessGame game = new ChessGame();
+        ChessMove move = new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null);
+        game.makeMove(move);
+        GameData moved = new GameData(gameData.gameID(), null, null, "game1", game);
+        gameDao.appendMoves(moved, List.of(move));
+        Assertions.assertSame(game, gameDao.getGame(gameData.gameID()).game(), "appendMoves() did not store the game");
+        Assertions.assertEquals("white", gameDao.getGame(gameData.gameID()).whiteUsername(),
+                "appendMoves() overwrote the players");
+
+        ChessGame over = new ChessGame();
+        over.setTeamTurn(ChessGame.TeamColor.GAME_OVER);
+        gameDao.updateGame(new GameData(gameData.gameID(), null, null, "game1", over), null, null);
+        Assertions.assertSame(over, gameDao.getGame(gameData.gameID()).game(), "updateGame() did not store the game");
+        Assertions.assertEquals("white", gameDao.getGame(gameData.gameID()).whiteUsername(),
+                "updateGame() overwrote the players");
+    }
+}
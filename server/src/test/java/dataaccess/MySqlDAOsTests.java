@@ -1,12 +1,16 @@
 package dataaccess;
 
 import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import chess.InvalidMoveException;
 import model.*;
 import org.junit.jupiter.api.*;
 import org.mindrot.jbcrypt.BCrypt;
 import request.RegisterRequest;
 import result.ListResult;
 import server.Server;
+import java.nio.charset.StandardCharsets;
 import java.util.Collection;
 
 @TestMethodOrder(MethodOrderer.OrderAnnotation.class)
@@ -163,6 +167,24 @@ public class MySqlDAOsTests {
 
     @Test
     @Order(15)
+    @DisplayName("Success MySqlGameDAO appendMove()")
+    public void successAppendMove() throws DataAccessException, InvalidMoveException {
+        GameData gameData = GAME_DAO.getGame(existingGameID);
+        ChessGame game = gameData.game();
+        for (int i = 0; i < 9; i++) {
+            int row = i % 2 == 0 ? 1 : 8;
+            ChessMove move = i % 4 < 2
+                    ? new ChessMove(new ChessPosition(row, 7), new ChessPosition(row == 1 ? 3 : 6, 6), null)
+                    : new ChessMove(new ChessPosition(row == 1 ? 3 : 6, 6), new ChessPosition(row, 7), null);
+            game.makeMove(move);
+            GAME_DAO.appendMove(gameData, move);
+        }
+        Assertions.assertEquals(game, GAME_DAO.getGame(existingGameID).game(),
+                "getGame() did not replay the appended moves");
+    }
+
+    @Test
+    @Order(16)
     @DisplayName("Success MySqlGameDAO listGames()")
     public void successListGames() throws DataAccessException {
         Collection<ListResult> list = GAME_DAO.listGames();
@@ -170,7 +192,7 @@ public class MySqlDAOsTests {
     }
 
     @Test
-    @Order(16)
+    @Order(17)
     @DisplayName("Fail MySqlGameDAO listGames()")
     public void failListGames() throws DataAccessException {
         GameDAO memoryGameDao = new MemoryGameDAO();
@@ -178,7 +200,7 @@ public class MySqlDAOsTests {
     }
 
     @Test
-    @Order(17)
+    @Order(18)
     @DisplayName("Success MySqlAuthDAO deleteAuth()")
     public void successDeleteAuth() throws DataAccessException {
         AuthData authData = AUTH_DAO.getAuth(existingAuth);
@@ -187,7 +209,7 @@ public class MySqlDAOsTests {
     }
 
     @Test
-    @Order(18)
+    @Order(19)
     @DisplayName("Fail MySqlAuthDAO deleteAuth()")
     public void failDeleteAuth() throws DataAccessException {
         AuthData authData = AUTH_DAO.getAuth(existingAuth);
@@ -195,7 +217,7 @@ public class MySqlDAOsTests {
     }
 
     @Test
-    @Order(19)
+    @Order(20)
     @DisplayName("Success MySqlAuthDAO clearAuth()")
     public void successClearAuth() throws DataAccessException {
         AuthData authData = AUTH_DAO.createAuth("username1");
@@ -205,7 +227,18 @@ public class MySqlDAOsTests {
     }
 
     @Test
-    @Order(20)
+    @Order(21)
+    @DisplayName("Success MySqlGameDAO getGame() Legacy JSON Row")
+    public void successGetLegacyGame() throws DataAccessException {
+        int gameID = ConfigureDatabase.executeUpdate("INSERT INTO gameData (gameName, game) VALUES (?, ?)",
+                "legacy", GameColumnTests.LEGACY_GAME_JSON.getBytes(StandardCharsets.UTF_8));
+        GameData gameData = GAME_DAO.getGame(gameID);
+        Assertions.assertEquals(ChessGame.fromFen(GameColumnTests.LEGACY_GAME_FEN), gameData.game(),
+                "getGame() does not read a game stored as JSON");
+    }
+
+    @Test
+    @Order(22)
     @DisplayName("Success MySqlGameDAO clearGame()")
     public void successClearGame() throws DataAccessException {
         GAME_DAO.clearGame();
@@ -213,7 +246,7 @@ public class MySqlDAOsTests {
     }
 
     @Test
-    @Order(21)
+    @Order(23)
     @DisplayName("Success MySqlUserDAO clearUser()")
     public void successClearUser() throws DataAccessException {
         USER_DAO.clearUser();
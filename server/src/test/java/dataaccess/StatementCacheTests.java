@@ -0,0 +1,95 @@
+package dataaccess;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+public class StatementCacheTests {
+
+    private final FakeJdbc.FakeConnection connection = new FakeJdbc.FakeConnection();
+
+    @Test
+    @DisplayName("Closing Handle Only Clears Parameters")
+    public void closingHandleOnlyClearsParameters() throws SQLException {
+        StatementCache cache = new StatementCache(connection.connection, 4);
+        PreparedStatement handle = cache.prepare("SELECT 1", Statement.NO_GENERATED_KEYS);
+        handle.executeUpdate();
+        handle.close();
+
+        FakeJdbc.FakeStatement statement = connection.statements.getFirst();
+        Assertions.assertFalse(statement.closed, "Closing a handle closed the cached statement");
+        Assertions.assertEquals(1, statement.parametersCleared, "Closing a handle did not clear parameters");
+        Assertions.assertEquals(1, statement.batchesCleared, "Closing a handle did not clear its batch");
+        Assertions.assertTrue(handle.isClosed(), "Closed handle not reported closed");
+        Assertions.assertThrows(SQLException.class, handle::executeUpdate, "Closed handle still usable");
+
+        handle.close();
+        Assertions.assertEquals(1, statement.parametersCleared, "Closing a handle twice cleared parameters again");
+        Assertions.assertEquals(1, statement.batchesCleared, "Closing a handle twice cleared the batch again");
+    }
+
+    @Test
+    @DisplayName("Unexecuted Batch Not Left For Next Borrower")
+    public void unexecutedBatchCleared() throws SQLException {
+        StatementCache cache = new StatementCache(connection.connection, 4);
+        PreparedStatement handle = cache.prepare("INSERT 1", Statement.NO_GENERATED_KEYS);
+        handle.setInt(1, 1);
+        handle.addBatch();
+        handle.close();
+
+        FakeJdbc.FakeStatement statement = connection.statements.getFirst();
+        Assertions.assertEquals(1, statement.batchesCleared, "Abandoned batch left on the cached statement");
+        cache.prepare("INSERT 1", Statement.NO_GENERATED_KEYS).close();
+        Assertions.assertEquals(2, statement.batchesCleared, "Reused statement's batch not cleared");
+    }
+
+    @Test
+    @DisplayName("Statement Reused For Same SQL And Key Option")
+    public void statementReusedForSameSql() throws SQLException {
+        StatementCache cache = new StatementCache(connection.connection, 4);
+        cache.prepare("SELECT 1", Statement.NO_GENERATED_KEYS).close();
+        PreparedStatement again = cache.prepare("SELECT 1", Statement.NO_GENERATED_KEYS);
+        again.executeUpdate();
+        Assertions.assertEquals(1, connection.statements.size(), "Same SQL prepared twice");
+        Assertions.assertEquals(1, connection.statements.getFirst().executions, "Handle not backed by cached statement");
+
+        cache.prepare("SELECT 1", Statement.RETURN_GENERATED_KEYS);
+        Assertions.assertEquals(2, connection.statements.size(), "Generated keys option not part of the cache key");
+    }
+
+    @Test
+    @DisplayName("Least Recently Used Statement Evicted And Closed")
+    public void leastRecentlyUsedStatementEvicted() throws SQLException {
+        StatementCache cache = new StatementCache(connection.connection, 2);
+        cache.prepare("SELECT 1", Statement.NO_GENERATED_KEYS).close();
+        cache.prepare("SELECT 2", Statement.NO_GENERATED_KEYS).close();
+        cache.prepare("SELECT 1", Statement.NO_GENERATED_KEYS).close();
+        cache.prepare("SELECT 3", Statement.NO_GENERATED_KEYS).close();
+
+        Assertions.assertTrue(statement("SELECT 2").closed, "Least recently used statement not closed");
+        Assertions.assertFalse(statement("SELECT 1").closed, "Recently used statement evicted");
+        Assertions.assertFalse(statement("SELECT 3").closed, "Newest statement evicted");
+
+        cache.prepare("SELECT 2", Statement.NO_GENERATED_KEYS).close();
+        Assertions.assertEquals(4, connection.statements.size(), "Evicted statement not prepared again");
+    }
+
+    @Test
+    @DisplayName("Closing Cache Closes Statements")
+    public void closingCacheClosesStatements() throws SQLException {
+        StatementCache cache = new StatementCache(connection.connection, 4);
+        cache.prepare("SELECT 1", Statement.NO_GENERATED_KEYS).close();
+        cache.prepare("SELECT 2", Statement.NO_GENERATED_KEYS).close();
+        cache.close();
+        Assertions.assertTrue(connection.statements.stream().allMatch(statement -> statement.closed),
+                "Cached statements left open");
+    }
+
+    private FakeJdbc.FakeStatement statement(String sql) {
+        return connection.statements.stream().filter(statement -> statement.sql.equals(sql)).findFirst().orElseThrow();
+    }
+}
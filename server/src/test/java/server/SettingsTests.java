@@ -0,0 +1,61 @@
+package server;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+public class SettingsTests {
+
+    private static final String PROPERTY = "chess.test.setting";
+    private static final String UNSET_VARIABLE = "CHESS_TEST_SETTING_NEVER_SET";
+
+    @AfterEach
+    public void clearProperty() {
+        System.clearProperty(PROPERTY);
+    }
+
+    @Test
+    @DisplayName("Unset Or Blank Setting Uses Default")
+    public void unsetSettingUsesDefault() {
+        Assertions.assertEquals("default", Settings.get(PROPERTY, UNSET_VARIABLE, "default"), "Unset setting");
+        System.setProperty(PROPERTY, "  ");
+        Assertions.assertEquals("default", Settings.get(PROPERTY, UNSET_VARIABLE, "default"), "Blank setting");
+        Assertions.assertEquals(64, Settings.getPositiveInt(PROPERTY, UNSET_VARIABLE, 64), "Blank integer setting");
+    }
+
+    @Test
+    @DisplayName("Valid Integer Setting Read")
+    public void validIntegerRead() {
+        System.setProperty(PROPERTY, " 16 ");
+        Assertions.assertEquals(16, Settings.getPositiveInt(PROPERTY, UNSET_VARIABLE, 64), "Integer setting ignored");
+    }
+
+    @Test
+    @DisplayName("Invalid Integer Setting Falls Back To Default")
+    public void invalidIntegerFallsBack() {
+        for (String value : new String[]{"lots", "0", "-5", "99999999999"}) {
+            System.setProperty(PROPERTY, value);
+            Assertions.assertEquals(64, Settings.getPositiveInt(PROPERTY, UNSET_VARIABLE, 64),
+                    "Setting " + value + " not replaced by the default");
+        }
+    }
+
+    @Test
+    @DisplayName("Enum Setting Read Ignoring Case")
+    public void enumSettingIgnoresCase() {
+        System.setProperty(PROPERTY, "Minutes");
+        Assertions.assertEquals(TimeUnit.MINUTES, Settings.getEnum(PROPERTY, UNSET_VARIABLE, TimeUnit.SECONDS),
+                "Enum setting not read");
+    }
+
+    @Test
+    @DisplayName("Unknown Enum Setting Falls Back To Default")
+    public void unknownEnumFallsBack() {
+        System.setProperty(PROPERTY, "fortnights");
+        Assertions.assertEquals(TimeUnit.SECONDS, Settings.getEnum(PROPERTY, UNSET_VARIABLE, TimeUnit.SECONDS),
+                "Unknown enum setting not replaced by the default");
+    }
+}
@@ -0,0 +1,94 @@
+package server.websocket;
+
+import org.eclipse.jetty.websocket.api.StatusCode;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+public class OutboundQueueTests {
+
+    private final StubSession client = new StubSession();
+
+    @Test
+    @DisplayName("Messages Sent One At A Time In Order")
+    public void messagesSentInOrder() {
+        client.holdWrites = true;
+        OutboundQueue queue = new OutboundQueue(client.session, 4, OutboundQueue.Policy.DISCONNECT);
+        queue.offer("first", false);
+        queue.offer("second", false);
+        queue.offer("third", true);
+        Assertions.assertEquals(List.of("first"), client.sent, "Sent while a write was in flight");
+
+        completeAll();
+        Assertions.assertEquals(List.of("first", "second", "third"), client.sent, "Queued messages out of order");
+    }
+
+    @Test
+    @DisplayName("Latest State Drops Superseded Board States")
+    public void latestStateDropsSupersededStates() {
+        client.holdWrites = true;
+        OutboundQueue queue = new OutboundQueue(client.session, 2, OutboundQueue.Policy.LATEST_STATE);
+        queue.offer("load 1", true);
+        queue.offer("load 2", true);
+        queue.offer("load 3", true);
+        queue.offer("load 4", true);
+
+        completeAll();
+        Assertions.assertEquals(List.of("load 1", "load 4"), client.sent, "Superseded LOAD_GAME frames sent");
+        Assertions.assertTrue(client.open, "Session closed though dropping states made room");
+    }
+
+    @Test
+    @DisplayName("Latest State Keeps Newest State For Other Messages")
+    public void latestStateKeepsNewestState() {
+        client.holdWrites = true;
+        OutboundQueue queue = new OutboundQueue(client.session, 3, OutboundQueue.Policy.LATEST_STATE);
+        queue.offer("load 1", true);
+        queue.offer("load 2", true);
+        queue.offer("load 3", true);
+        queue.offer("notification 1", false);
+        queue.offer("notification 2", false);
+
+        completeAll();
+        Assertions.assertEquals(List.of("load 1", "load 3", "notification 1", "notification 2"), client.sent,
+                "Newest LOAD_GAME not kept, or other messages dropped");
+    }
+
+    @Test
+    @DisplayName("Latest State Disconnects When Nothing Can Be Dropped")
+    public void latestStateDisconnectsWhenFull() {
+        client.holdWrites = true;
+        OutboundQueue queue = new OutboundQueue(client.session, 1, OutboundQueue.Policy.LATEST_STATE);
+        queue.offer("move 1", false);
+        queue.offer("move 2", false);
+        queue.offer("move 3", false);
+        Assertions.assertFalse(client.open, "Session left open with a full queue of moves");
+        Assertions.assertEquals(StatusCode.POLICY_VIOLATION, client.closeStatus, "Wrong close status");
+    }
+
+    @Test
+    @DisplayName("Disconnect Closes Session When Full")
+    public void disconnectClosesSessionWhenFull() {
+        client.holdWrites = true;
+        OutboundQueue queue = new OutboundQueue(client.session, 1, OutboundQueue.Policy.DISCONNECT);
+        queue.offer("load 1", true);
+        queue.offer("load 2", true);
+        queue.offer("load 3", true);
+        Assertions.assertFalse(client.open, "Session left open with a full queue");
+        Assertions.assertEquals(StatusCode.POLICY_VIOLATION, client.closeStatus, "Wrong close status");
+
+        client.completeWrite();
+        queue.offer("load 4", true);
+        Assertions.assertEquals(List.of("load 1"), client.sent, "Sent to a disconnected session");
+    }
+
+    private void completeAll() {
+        int completed = 0;
+        while (completed < client.sent.size()) {
+            client.completeWrite();
+            completed++;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package server.websocket;
+
+import org.eclipse.jetty.websocket.api.RemoteEndpoint;
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * A websocket session that records the frames sent on it, for testing the handler and
+ * outbound queues without a client. Sends complete at once unless holdWrites is set, in
+ * which case they wait for completeWrite.
+ */
+class StubSession implements InvocationHandler {
+
+    final Session session = (Session) Proxy.newProxyInstance(Session.class.getClassLoader(),
+            new Class<?>[]{Session.class}, this);
+    final List<String> sent = new CopyOnWriteArrayList<>();
+    volatile boolean open = true;
+    volatile int closeStatus;
+    volatile boolean holdWrites;
+    private final Queue<WriteCallback> inFlight = new ArrayDeque<>();
+    private final RemoteEndpoint remote = (RemoteEndpoint) Proxy.newProxyInstance(
+            RemoteEndpoint.class.getClassLoader(), new Class<?>[]{RemoteEndpoint.class}, this::invokeRemote);
+
+    /**
+     * Completes the oldest write still in flight
+     */
+    void completeWrite() {
+        WriteCallback callback;
+        synchronized (inFlight) {
+            callback = inFlight.poll();
+        }
+        callback.writeSuccess();
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) {
+        switch (method.getName()) {
+            case "isOpen" -> {
+                return open;
+            }
+            case "getRemote" -> {
+                return remote;
+            }
+            case "close" -> {
+                open = false;
+                closeStatus = args != null && args.length > 0 && args[0] instanceof Integer code ? code : 0;
+            }
+            case "equals" -> {
+                return proxy == args[0];
+            }
+            case "hashCode" -> {
+                return System.identityHashCode(proxy);
+            }
+            case "toString" -> {
+                return "StubSession";
+            }
+            default -> {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    private Object invokeRemote(Object proxy, Method method, Object[] args) {
+        if (method.getName().equals("sendString") && args.length == 2) {
+            sent.add((String) args[0]);
+            WriteCallback callback = (WriteCallback) args[1];
+            if (holdWrites) {
+                synchronized (inFlight) {
+                    inFlight.add(callback);
+                }
+            } else {
+                callback.writeSuccess();
+            }
+        }
+        return null;
+    }
+}
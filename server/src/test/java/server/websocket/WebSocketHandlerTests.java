@@ -0,0 +1,187 @@
+package server.websocket;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import com.google.gson.Gson;
+import dataaccess.MemoryAuthDAO;
+import dataaccess.MemoryGameDAO;
+import dataaccess.MemoryUserDAO;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import request.CreateRequest;
+import request.JoinRequest;
+import request.RegisterRequest;
+import service.GameService;
+import service.UserService;
+import websocket.commands.ConnectCommand;
+import websocket.commands.MakeMoveCommand;
+import websocket.commands.UserGameCommand;
+import websocket.messages.MoveMadeMessage;
+import websocket.messages.NotificationMessage;
+import websocket.messages.ServerMessage;
+
+import java.util.Set;
+
+public class WebSocketHandlerTests {
+
+    private static final Gson GSON = new Gson();
+
+    private final MemoryAuthDAO authDao = new MemoryAuthDAO();
+    private final GameService gameService = new GameService(authDao, new MemoryGameDAO());
+    private final UserService userService = new UserService(authDao, new MemoryUserDAO());
+    private final WebSocketSessions sessions = new WebSocketSessions();
+    private final WebSocketHandler handler = new WebSocketHandler(gameService, userService, sessions);
+    private final StubSession white = new StubSession();
+    private final StubSession black = new StubSession();
+    private final StubSession observer = new StubSession();
+
+    @Test
+    @DisplayName("Empty Message Answered With Error")
+    public void emptyMessageAnsweredWithError() {
+        assertError("");
+        assertError("null");
+    }
+
+    @Test
+    @DisplayName("Command Without Game ID Answered With Error")
+    public void commandWithoutGameIDAnsweredWithError() {
+        assertError("{\"commandType\":\"CONNECT\",\"authToken\":\"token\"}");
+    }
+
+    @Test
+    @DisplayName("Command Without Type Answered With Error")
+    public void commandWithoutTypeAnsweredWithError() {
+        assertError("{\"authToken\":\"token\",\"gameID\":1}");
+    }
+
+    @Test
+    @DisplayName("Move Made Sent Only To Sessions That Asked For It")
+    public void moveMadeSentToSessionsThatAskedForIt() throws Exception {
+        Players players = startGame();
+        String observerAuth = register("observer");
+        send(white, new ConnectCommand(players.whiteAuth, players.gameID, true), 1);
+        send(black, new ConnectCommand(players.blackAuth, players.gameID, false), 1);
+        send(observer, new ConnectCommand(observerAuth, players.gameID, true), 1);
+        await(white, 3);
+        await(black, 2);
+
+        ChessMove move = new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null);
+        send(white, new MakeMoveCommand(players.whiteAuth, players.gameID, move), 4);
+        await(black, 4);
+        await(observer, 3);
+
+        MoveMadeMessage moveMade = GSON.fromJson(white.sent.get(3), MoveMadeMessage.class);
+        Assertions.assertEquals(ServerMessage.ServerMessageType.MOVE_MADE, moveMade.getServerMessageType(),
+                "Mover did not get MOVE_MADE");
+        Assertions.assertEquals(move, moveMade.getMove(), "MOVE_MADE carries the wrong move");
+        Assertions.assertEquals(1, moveMade.getSequence(), "MOVE_MADE sequence is not the ply after the move");
+        Assertions.assertEquals(ServerMessage.ServerMessageType.MOVE_MADE, type(observer.sent.get(1)),
+                "Observer that asked for move updates did not get MOVE_MADE");
+        Assertions.assertEquals(ServerMessage.ServerMessageType.LOAD_GAME, type(black.sent.get(2)),
+                "Session that did not ask for move updates did not get LOAD_GAME");
+        Assertions.assertEquals(ServerMessage.ServerMessageType.NOTIFICATION, type(black.sent.get(3)),
+                "Move not announced");
+    }
+
+    @Test
+    @DisplayName("Connect After Leave Announced")
+    public void connectAfterLeaveAnnounced() throws Exception {
+        Players players = startGame();
+        send(white, new ConnectCommand(players.whiteAuth, players.gameID, true), 1);
+        send(black, new ConnectCommand(players.blackAuth, players.gameID, false), 1);
+        await(white, 2);
+
+        send(white, new UserGameCommand(UserGameCommand.CommandType.LEAVE, players.whiteAuth, players.gameID), 2);
+        await(black, 2);
+        send(white, new ConnectCommand(players.whiteAuth, players.gameID, true), 3);
+        await(black, 3);
+
+        Assertions.assertEquals(ServerMessage.ServerMessageType.LOAD_GAME, type(white.sent.get(2)),
+                "Reconnect did not load the game");
+        NotificationMessage joined = GSON.fromJson(black.sent.get(2), NotificationMessage.class);
+        Assertions.assertTrue(joined.getMessage().contains("joined"),
+                "Reconnect after leaving treated as a resync: " + joined.getMessage());
+    }
+
+    @Test
+    @DisplayName("Closed Session Gets No Further Messages")
+    public void closedSessionGetsNoFurtherMessages() throws Exception {
+        Players players = startGame();
+        send(white, new ConnectCommand(players.whiteAuth, players.gameID, true), 1);
+        send(black, new ConnectCommand(players.blackAuth, players.gameID, false), 1);
+        await(white, 2);
+
+        // The stub stays open, so only the handler's own bookkeeping can keep it out
+        handler.onClose(black.session, 1001, "going away");
+        ChessMove move = new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null);
+        send(white, new MakeMoveCommand(players.whiteAuth, players.gameID, move), 3);
+        Thread.sleep(50);
+        Assertions.assertEquals(1, black.sent.size(), "Closed session still sent game updates: " + black.sent);
+    }
+
+    @Test
+    @DisplayName("Command Handled After Close Does Not Register Session")
+    public void commandAfterCloseDoesNotRegisterSession() throws Exception {
+        Players players = startGame();
+        send(white, new ConnectCommand(players.whiteAuth, players.gameID, true), 1);
+
+        // Jetty has closed the session and cleaned up before the game's thread gets to its command
+        black.open = false;
+        handler.onClose(black.session, 1001, "going away");
+        handler.onMessage(black.session, GSON.toJson(new ConnectCommand(players.blackAuth, players.gameID, true)));
+        await(white, 2);
+
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (sessions.get(players.gameID).contains(black.session) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        Assertions.assertEquals(Set.of(white.session), sessions.get(players.gameID),
+                "Closed session registered by a command handled after close");
+    }
+
+    private void assertError(String message) {
+        StubSession client = new StubSession();
+        handler.onMessage(client.session, message);
+        Assertions.assertEquals(1, client.sent.size(), "No single reply to " + message);
+        Assertions.assertEquals(ServerMessage.ServerMessageType.ERROR,
+                GSON.fromJson(client.sent.getFirst(), ServerMessage.class).getServerMessageType(),
+                "Reply to " + message + " is not an error");
+    }
+
+    private record Players(String whiteAuth, String blackAuth, int gameID) {}
+
+    private Players startGame() throws Exception {
+        String whiteAuth = register("white");
+        String blackAuth = register("black");
+        int gameID = gameService.create(new CreateRequest(whiteAuth, "game")).gameID();
+        gameService.join(new JoinRequest(whiteAuth, ChessGame.TeamColor.WHITE, gameID));
+        gameService.join(new JoinRequest(blackAuth, ChessGame.TeamColor.BLACK, gameID));
+        return new Players(whiteAuth, blackAuth, gameID);
+    }
+
+    private String register(String username) throws Exception {
+        return userService.register(new RegisterRequest(username, "password", username + "@mail.com")).authToken();
+    }
+
+    /*
+     * Commands run on the game's own thread, so wait for the replies to arrive.
+     */
+    private void send(StubSession client, UserGameCommand command, int expectedFrames) throws InterruptedException {
+        handler.onMessage(client.session, GSON.toJson(command));
+        await(client, expectedFrames);
+    }
+
+    private static void await(StubSession client, int expectedFrames) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (client.sent.size() < expectedFrames && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        Assertions.assertEquals(expectedFrames, client.sent.size(), "Wrong number of frames: " + client.sent);
+    }
+
+    private static ServerMessage.ServerMessageType type(String json) {
+        return GSON.fromJson(json, ServerMessage.class).getServerMessageType();
+    }
+}
@@ -0,0 +1,67 @@
+package server.websocket;
+
+import org.eclipse.jetty.websocket.api.Session;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+public class WebSocketSessionsTests {
+
+    private final WebSocketSessions sessions = new WebSocketSessions();
+    private final Session first = new StubSession().session;
+    private final Session second = new StubSession().session;
+
+    @Test
+    @DisplayName("Closed Session Removed From Every Game")
+    public void closedSessionRemovedFromEveryGame() {
+        sessions.add(1, first);
+        sessions.add(2, first);
+        sessions.add(2, second);
+
+        sessions.removeSession(first);
+        Assertions.assertTrue(sessions.get(1).isEmpty(), "Closed session left in its first game");
+        Assertions.assertEquals(Set.of(second), sessions.get(2), "Closed session left, or other session removed");
+    }
+
+    @Test
+    @DisplayName("Leaving One Game Keeps The Others")
+    public void leavingOneGameKeepsOthers() {
+        sessions.add(1, first);
+        sessions.add(2, first);
+
+        sessions.remove(1, first);
+        Assertions.assertTrue(sessions.get(1).isEmpty(), "Session still in the game it left");
+        Assertions.assertEquals(Set.of(first), sessions.get(2), "Leaving one game removed the session from another");
+
+        sessions.removeSession(first);
+        Assertions.assertTrue(sessions.get(2).isEmpty(), "Reverse index lost the game still being watched");
+    }
+
+    @Test
+    @DisplayName("Rejoining After Leaving Tracked Again")
+    public void rejoiningAfterLeavingTracked() {
+        sessions.add(1, first);
+        sessions.remove(1, first);
+        sessions.add(1, first);
+        Assertions.assertEquals(Set.of(first), sessions.get(1), "Rejoined session missing");
+
+        sessions.removeSession(first);
+        Assertions.assertTrue(sessions.get(1).isEmpty(), "Rejoined game missing from the reverse index");
+    }
+
+    @Test
+    @DisplayName("Broadcast Set Unchanged By Concurrent Leave")
+    public void broadcastSetIteratesSnapshot() {
+        sessions.add(1, first);
+        sessions.add(1, second);
+        int seen = 0;
+        for (Session session : sessions.get(1)) {
+            sessions.removeSession(session);
+            seen++;
+        }
+        Assertions.assertEquals(2, seen, "Iteration skipped a session removed during it");
+        Assertions.assertTrue(sessions.get(1).isEmpty(), "Sessions not removed");
+    }
+}
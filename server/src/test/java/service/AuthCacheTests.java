@@ -0,0 +1,109 @@
+package service;
+
+import dataaccess.MemoryAuthDAO;
+import model.AuthData;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class AuthCacheTests {
+
+    private final CountingAuthDAO backend = new CountingAuthDAO();
+
+    @Test
+    @DisplayName("Token Answered From Memory Until TTL Expires")
+    public void tokenCachedUntilTtlExpires() throws Exception {
+        AuthCache cache = new AuthCache(backend, 50, 10, 100);
+        AuthData authData = cache.createAuth("username");
+        Assertions.assertEquals(authData, cache.getAuth(authData.authToken()), "Created token not found");
+        Assertions.assertEquals(0, backend.lookups, "Token created through the cache looked up");
+
+        backend.deleteAuth(authData);
+        Assertions.assertEquals(authData, cache.getAuth(authData.authToken()), "Token not cached for its TTL");
+        Thread.sleep(60);
+        Assertions.assertNull(cache.getAuth(authData.authToken()), "Token served past its TTL");
+        Assertions.assertEquals(1, backend.lookups, "Expired token not looked up again");
+    }
+
+    @Test
+    @DisplayName("Token Read Through Once")
+    public void tokenReadThroughOnce() throws Exception {
+        AuthCache cache = new AuthCache(backend, 60_000, 10, 100);
+        AuthData authData = backend.createAuth("username");
+        Assertions.assertEquals(authData, cache.getAuth(authData.authToken()), "Token not read through");
+        Assertions.assertEquals(authData, cache.getAuth(authData.authToken()), "Cached token lost");
+        Assertions.assertEquals(1, backend.lookups, "Cached token looked up again");
+    }
+
+    @Test
+    @DisplayName("Unknown Token Remembered For Negative TTL")
+    public void unknownTokenRememberedForNegativeTtl() throws Exception {
+        AuthCache cache = new AuthCache(backend, 60_000, 30, 100);
+        for (int i = 0; i < 5; i++) {
+            Assertions.assertNull(cache.getAuth("bad token"), "Unknown token accepted");
+        }
+        Assertions.assertEquals(1, backend.lookups, "Each retry of an unknown token looked up");
+
+        Thread.sleep(40);
+        Assertions.assertNull(cache.getAuth("bad token"), "Unknown token accepted");
+        Assertions.assertEquals(2, backend.lookups, "Unknown token remembered past the negative TTL");
+    }
+
+    @Test
+    @DisplayName("Deleted Token Stays Invalid")
+    public void deletedTokenStaysInvalid() throws Exception {
+        AuthCache cache = new AuthCache(backend, 60_000, 10, 100);
+        AuthData authData = cache.createAuth("username");
+        cache.deleteAuth(authData);
+        Assertions.assertNull(cache.getAuth(authData.authToken()), "Deleted token still valid");
+
+        Thread.sleep(20);
+        Assertions.assertNull(cache.getAuth(authData.authToken()), "Deleted token valid after the negative TTL");
+        Assertions.assertEquals(0, backend.lookups, "Deleted token looked up instead of held as invalid");
+        Assertions.assertNull(backend.getAuth(authData.authToken()), "Token not deleted from the backend");
+    }
+
+    @Test
+    @DisplayName("Clear Drops Cached Tokens")
+    public void clearDropsCachedTokens() throws Exception {
+        AuthCache cache = new AuthCache(backend, 60_000, 10, 100);
+        AuthData authData = cache.createAuth("username");
+        cache.clearAuth();
+        Assertions.assertNull(cache.getAuth(authData.authToken()), "Cleared token still valid");
+        Assertions.assertEquals(1, backend.lookups, "Cleared token answered from memory");
+    }
+
+    @Test
+    @DisplayName("Full Cache Drops Tokens Closest To Expiring")
+    public void fullCacheDropsOldestTokens() throws Exception {
+        AuthCache cache = new AuthCache(backend, 60_000, 10, 10);
+        List<AuthData> created = new ArrayList<>();
+        for (int i = 0; i < 11; i++) {
+            created.add(cache.createAuth("username" + i));
+            Thread.sleep(2);
+        }
+
+        Assertions.assertEquals(created.getLast(), cache.getAuth(created.getLast().authToken()),
+                "Newest token lost");
+        Assertions.assertEquals(created.get(1), cache.getAuth(created.get(1).authToken()),
+                "More tokens dropped than needed");
+        Assertions.assertEquals(0, backend.lookups, "Recent tokens dropped from a full cache");
+
+        Assertions.assertEquals(created.getFirst(), cache.getAuth(created.getFirst().authToken()),
+                "Dropped token not read through");
+        Assertions.assertEquals(1, backend.lookups, "Token closest to expiring not dropped");
+    }
+
+    private static class CountingAuthDAO extends MemoryAuthDAO {
+        private int lookups;
+
+        @Override
+        public AuthData getAuth(String authToken) {
+            lookups++;
+            return super.getAuth(authToken);
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package service;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import dataaccess.MemoryGameDAO;
+import model.GameData;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+public class GameCacheTests {
+
+    private final RecordingGameDAO backend = new RecordingGameDAO();
+    private GameCache cache;
+
+    @AfterEach
+    public void closeCache() {
+        if (cache != null) {
+            cache.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Cached Game Is Not The Backend's Instance")
+    public void cachedGameIsCopy() throws Exception {
+        cache = newCache(60_000);
+        GameData created = cache.create("copy");
+        Assertions.assertNotSame(backend.getGame(created.gameID()).game(), created.game(),
+                "Created game shared with the backend");
+
+        move(created, "e2", "e4");
+        Assertions.assertEquals(new ChessGame(), backend.getGame(created.gameID()).game(),
+                "Move reached the backend before a flush");
+        Assertions.assertSame(created, cache.getGame(created.gameID()), "Cache did not hand out its own copy");
+    }
+
+    @Test
+    @DisplayName("Moves Written Behind In One Batch")
+    public void movesWrittenBehindInOneBatch() throws Exception {
+        cache = newCache(60_000);
+        GameData game = cache.create("batch");
+        move(game, "e2", "e4");
+        move(game, "e7", "e5");
+        move(game, "g1", "f3");
+        Assertions.assertEquals(0, backend.appendCalls, "Moves written before a flush");
+
+        cache.flush();
+        Assertions.assertEquals(1, backend.appendCalls, "Queued moves not coalesced into one write");
+        Assertions.assertEquals(3, backend.appendedMoves, "Queued moves lost");
+        Assertions.assertEquals(game.game(), backend.getGame(game.gameID()).game(), "Flushed position differs");
+        Assertions.assertNotSame(game.game(), backend.getGame(game.gameID()).game(),
+                "Flush handed the backend the cached instance");
+
+        cache.flush();
+        Assertions.assertEquals(1, backend.appendCalls, "Empty flush wrote again");
+    }
+
+    @Test
+    @DisplayName("Failed Flush Stays Queued")
+    public void failedFlushStaysQueued() throws Exception {
+        cache = newCache(60_000);
+        GameData game = cache.create("retry");
+        move(game, "e2", "e4");
+        backend.failNext = true;
+        cache.flush();
+        Assertions.assertEquals(new ChessGame(), backend.getGame(game.gameID()).game(), "Failed write applied");
+
+        move(game, "e7", "e5");
+        cache.flush();
+        Assertions.assertEquals(2, backend.appendedMoves, "Failed moves not retried with the newer ones");
+        Assertions.assertEquals(game.game(), backend.getGame(game.gameID()).game(), "Retried position differs");
+    }
+
+    @Test
+    @DisplayName("Game With Pending Writes Not Evicted")
+    public void pendingGameNotEvicted() throws Exception {
+        cache = newCache(0);
+        GameData game = cache.create("pending");
+        move(game, "e2", "e4");
+        Thread.sleep(5);
+        cache.evictIdle();
+        Assertions.assertSame(game, cache.getGame(game.gameID()), "Game evicted before its moves were written");
+    }
+
+    @Test
+    @DisplayName("Idle Game Evicted After Flush")
+    public void idleGameEvictedAfterFlush() throws Exception {
+        cache = newCache(0);
+        GameData game = cache.create("idle");
+        move(game, "e2", "e4");
+        cache.flush();
+        Thread.sleep(5);
+        cache.evictIdle();
+
+        GameData reloaded = cache.getGame(game.gameID());
+        Assertions.assertNotSame(game, reloaded, "Idle game not evicted");
+        Assertions.assertEquals(game.game(), reloaded.game(), "Reloaded game differs from the flushed one");
+    }
+
+    @Test
+    @DisplayName("Move On Evicted Game Puts It Back")
+    public void moveOnEvictedGamePutsItBack() throws Exception {
+        cache = newCache(0);
+        GameData game = cache.create("evicted");
+        Thread.sleep(5);
+        cache.evictIdle();
+
+        move(game, "e2", "e4");
+        Assertions.assertSame(game, cache.getGame(game.gameID()), "Game with a queued move not cached again");
+    }
+
+    @Test
+    @DisplayName("Close Flushes Queued Moves")
+    public void closeFlushesQueuedMoves() throws Exception {
+        cache = newCache(60_000);
+        GameData game = cache.create("close");
+        move(game, "d2", "d4");
+        cache.close();
+        Assertions.assertEquals(game.game(), backend.getGame(game.gameID()).game(), "Close left moves queued");
+    }
+
+    private GameCache newCache(long idleTimeoutMillis) {
+        return new GameCache(backend, 60_000, idleTimeoutMillis);
+    }
+
+    private void move(GameData gameData, String from, String to) throws Exception {
+        ChessMove move = new ChessMove(position(from), position(to), null);
+        gameData.game().makeMove(move);
+        cache.appendMove(gameData, move);
+    }
+
+    private static ChessPosition position(String square) {
+        return new ChessPosition(square.charAt(1) - '0', square.charAt(0) - 'a' + 1);
+    }
+
+    private static class RecordingGameDAO extends MemoryGameDAO {
+        private int appendCalls;
+        private int appendedMoves;
+        private boolean failNext;
+
+        @Override
+        public void appendMoves(GameData gameData, List<ChessMove> moves) {
+            if (failNext) {
+                failNext = false;
+                throw new IllegalStateException("write failed");
+            }
+            appendCalls++;
+            appendedMoves += moves.size();
+            super.appendMoves(gameData, moves);
+        }
+    }
+}
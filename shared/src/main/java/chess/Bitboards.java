@@ -0,0 +1,309 @@
+package chess;
+
+/**
+ * Square numbering and attack helpers for the bitboard representation used by ChessBoard.
+ * <p>
+ * Square 0 is row 1, column 1 (a1) and square 63 is row 8, column 8 (h8). Colors are
+ * indexed by {@link ChessGame.TeamColor#ordinal()}, so WHITE is 0 and BLACK is 1.
+ */
+final class Bitboards {
+
+    static final int WHITE = 0;
+    static final int BLACK = 1;
+
+    static final long FILE_A = 0x0101010101010101L;
+    static final long FILE_B = FILE_A << 1;
+    static final long FILE_G = FILE_A << 6;
+    static final long FILE_H = FILE_A << 7;
+    static final long RANK_1 = 0xFFL;
+    static final long RANK_2 = RANK_1 << 8;
+    static final long RANK_3 = RANK_1 << 16;
+    static final long RANK_6 = RANK_1 << 40;
+    static final long RANK_7 = RANK_1 << 48;
+    static final long RANK_8 = RANK_1 << 56;
+
+    /*
+     * BETWEEN[a][b] holds the squares strictly between a and b, and LINE[a][b] the whole
+     * rank, file or diagonal through both, when a and b are aligned. Both are empty
+     * otherwise.
+     */
+    private static final long[][] BETWEEN = new long[64][64];
+    private static final long[][] LINE = new long[64][64];
+
+    /*
+     * Leaper attacks from every square, and for each color the squares a pawn on a square
+     * attacks.
+     */
+    private static final long[] KNIGHT_ATTACKS = new long[64];
+    private static final long[] KING_ATTACKS = new long[64];
+    private static final long[][] PAWN_ATTACKS = new long[2][64];
+
+    /*
+     * Magic bitboard tables for sliders. The mask holds the squares whose occupancy can
+     * block a slider on that square (the board edge never can); multiplying the masked
+     * occupancy by the magic and keeping the top bits gives a collision-free index into
+     * the attack sets precomputed for that square. The magics were found once by random
+     * search, since searching at startup takes over a second.
+     */
+    private static final long[] ROOK_MAGICS = {
+            0x0080008A22504000L, 0x4040004010002003L, 0x4680088010002002L, 0x9080080004801000L,
+            0x8200108200088420L, 0x0580040042008001L, 0x82002E8200080104L, 0x8600004091002402L,
+            0x4100802080004008L, 0x0000400020100040L, 0x0208801004200080L, 0x400A002012000940L,
+            0xEBB1000801000410L, 0x0022001008040200L, 0x2403000A00090004L, 0x2020800100104880L,
+            0x00C0008000204080L, 0x00A0210040008100L, 0x140C410020001104L, 0x0201050020900008L,
+            0x0040808008000400L, 0x0809010008020400L, 0x1240808002000100L, 0x00080A0028804904L,
+            0x0440004080102080L, 0x0140400080802000L, 0x0310080020002400L, 0x8008090100201004L,
+            0x0040110100080005L, 0x1000020080800400L, 0x400100090022000CL, 0x2024802080104900L,
+            0x82004004838000A1L, 0x0090002000404001L, 0x4200801000802002L, 0x00080A0022001240L,
+            0x0001000801001006L, 0x0000040080800200L, 0x1800102844004102L, 0x00800100420000A4L,
+            0x1240044180238000L, 0x0500201000404000L, 0x0440200041010015L, 0x0212004008220010L,
+            0x1090080004008080L, 0x0044000200808004L, 0x0004281982040010L, 0x4000210040820004L,
+            0x00018000C0006180L, 0x0000200080400080L, 0x0020001100204100L, 0x0020081004210100L,
+            0x5000800800040080L, 0x0002000204008080L, 0x0200025001280400L, 0x0000004104008200L,
+            0x2280281145008001L, 0x0800400301388021L, 0x008D082001001045L, 0x4021210004100009L,
+            0x402200100448606AL, 0x00E2000110088402L, 0x0000100208213084L, 0x0C08040840208102L
+    };
+    private static final long[] BISHOP_MAGICS = {
+            0xC008200800890210L, 0x1005015214010000L, 0x21080094008C4500L, 0x0004041482024001L,
+            0x0801104005000800L, 0x0012080209520008L, 0x800A020202420020L, 0x0000420044024000L,
+            0x210010AA10840280L, 0x0100500141010200L, 0x0000A808D1020020L, 0x0100040400846028L,
+            0x8000011041200100L, 0x80124A0822081000L, 0x0100042208020808L, 0x2000D84402080341L,
+            0x004000191A080249L, 0x0082001104010400L, 0x4008101000202020L, 0x4030801802004202L,
+            0x3044808400A04001L, 0x2202010841100100L, 0x080A000082412004L, 0x0301000244208410L,
+            0xC020082005100400L, 0x20A1202009280D01L, 0x00CC020001120400L, 0x000040400C010200L,
+            0x0002840031822008L, 0x110C010000900080L, 0x000224003208A248L, 0x00210211490C8080L,
+            0x001108A040482002L, 0x0C76186080820200L, 0x0049044104880800L, 0x2001020080480080L,
+            0x8C200A0080806480L, 0x0408010840080801L, 0x000400A410008421L, 0x0044008020808408L,
+            0x000801C420101040L, 0x000100D820040440L, 0x00008CA088001000L, 0x0004042038002700L,
+            0x3000201A00800412L, 0x8001114101000200L, 0x000801DC04000085L, 0x0102108410800D02L,
+            0x4020611820500001L, 0x100A010101310980L, 0x0000020100A20008L, 0x0C00080020A80110L,
+            0x0C00806405040800L, 0x0000A00490008200L, 0x0010310648084281L, 0x4008084810424002L,
+            0x8000C0425C202002L, 0x00A2008200822000L, 0x8000000884108800L, 0x0201020904208800L,
+            0x0110000240048848L, 0x70000A4810104220L, 0x0804201504409400L, 0x00100206082E0010L
+    };
+    private static final long[] ROOK_MASKS = new long[64];
+    private static final int[] ROOK_SHIFTS = new int[64];
+    private static final long[][] ROOK_ATTACKS = new long[64][];
+    private static final long[] BISHOP_MASKS = new long[64];
+    private static final int[] BISHOP_SHIFTS = new int[64];
+    private static final long[][] BISHOP_ATTACKS = new long[64][];
+
+    static {
+        // Opposite directions sit next to each other, so direction ^ 1 reverses one
+        int[][] directions = {{1, 0}, {-1, 0}, {0, 1}, {0, -1}, {1, 1}, {-1, -1}, {1, -1}, {-1, 1}};
+        long[][] rays = new long[64][directions.length];
+        for (int from = 0; from < 64; from++) {
+            for (int d = 0; d < directions.length; d++) {
+                int row = row(from) + directions[d][0];
+                int column = column(from) + directions[d][1];
+                while (row >= 1 && row <= 8 && column >= 1 && column <= 8) {
+                    int to = square(row, column);
+                    BETWEEN[from][to] = rays[from][d];
+                    rays[from][d] |= bit(to);
+                    row += directions[d][0];
+                    column += directions[d][1];
+                }
+            }
+        }
+        for (int from = 0; from < 64; from++) {
+            for (int d = 0; d < directions.length; d++) {
+                long line = rays[from][d] | rays[from][d ^ 1] | bit(from);
+                for (long b = rays[from][d]; b != 0; b &= b - 1) {
+                    LINE[from][Long.numberOfTrailingZeros(b)] = line;
+                }
+            }
+        }
+    }
+
+    static {
+        for (int square = 0; square < 64; square++) {
+            long b = bit(square);
+            KNIGHT_ATTACKS[square] = ((b << 17) & ~FILE_A) | ((b << 15) & ~FILE_H)
+                    | ((b << 10) & ~(FILE_A | FILE_B)) | ((b << 6) & ~(FILE_G | FILE_H))
+                    | ((b >>> 17) & ~FILE_H) | ((b >>> 15) & ~FILE_A)
+                    | ((b >>> 10) & ~(FILE_G | FILE_H)) | ((b >>> 6) & ~(FILE_A | FILE_B));
+            long sides = ((b << 1) & ~FILE_A) | ((b >>> 1) & ~FILE_H);
+            long row = b | sides;
+            KING_ATTACKS[square] = sides | (row << 8) | (row >>> 8);
+            PAWN_ATTACKS[WHITE][square] = ((b << 9) & ~FILE_A) | ((b << 7) & ~FILE_H);
+            PAWN_ATTACKS[BLACK][square] = ((b >>> 7) & ~FILE_A) | ((b >>> 9) & ~FILE_H);
+        }
+
+        for (int square = 0; square < 64; square++) {
+            ROOK_MASKS[square] = slowRookAttacks(square, 0L) & ~edgesBeyond(square);
+            ROOK_SHIFTS[square] = 64 - Long.bitCount(ROOK_MASKS[square]);
+            ROOK_ATTACKS[square] = new long[1 << Long.bitCount(ROOK_MASKS[square])];
+            fillMagicTable(square, ROOK_MASKS[square], ROOK_MAGICS[square], ROOK_SHIFTS[square],
+                    ROOK_ATTACKS[square], true);
+
+            BISHOP_MASKS[square] = slowBishopAttacks(square, 0L) & ~edgesBeyond(square);
+            BISHOP_SHIFTS[square] = 64 - Long.bitCount(BISHOP_MASKS[square]);
+            BISHOP_ATTACKS[square] = new long[1 << Long.bitCount(BISHOP_MASKS[square])];
+            fillMagicTable(square, BISHOP_MASKS[square], BISHOP_MAGICS[square], BISHOP_SHIFTS[square],
+                    BISHOP_ATTACKS[square], false);
+        }
+    }
+
+    private Bitboards() {}
+
+    /**
+     * square does no range check, and an off-board row or column lands on some other
+     * square, so positions from outside the engine are checked with this first
+     */
+    static boolean isOnBoard(ChessPosition position) {
+        return position != null && position.getRow() >= 1 && position.getRow() <= 8
+                && position.getColumn() >= 1 && position.getColumn() <= 8;
+    }
+
+    static int square(int row, int column) {
+        return ((row - 1) << 3) | (column - 1);
+    }
+
+    static int square(ChessPosition position) {
+        return square(position.getRow(), position.getColumn());
+    }
+
+    static int row(int square) {
+        return (square >>> 3) + 1;
+    }
+
+    static int column(int square) {
+        return (square & 7) + 1;
+    }
+
+    static long bit(int square) {
+        return 1L << square;
+    }
+
+    static ChessPosition position(int square) {
+        return ChessPosition.of(square);
+    }
+
+    static long knightAttacks(int square) {
+        return KNIGHT_ATTACKS[square];
+    }
+
+    static long kingAttacks(int square) {
+        return KING_ATTACKS[square];
+    }
+
+    static long pawnAttacks(int square, int color) {
+        return PAWN_ATTACKS[color][square];
+    }
+
+    static long rookAttacks(int square, long occupied) {
+        int index = (int) (((occupied & ROOK_MASKS[square]) * ROOK_MAGICS[square]) >>> ROOK_SHIFTS[square]);
+        return ROOK_ATTACKS[square][index];
+    }
+
+    static long bishopAttacks(int square, long occupied) {
+        int index = (int) (((occupied & BISHOP_MASKS[square]) * BISHOP_MAGICS[square]) >>> BISHOP_SHIFTS[square]);
+        return BISHOP_ATTACKS[square][index];
+    }
+
+    static long queenAttacks(int square, long occupied) {
+        return rookAttacks(square, occupied) | bishopAttacks(square, occupied);
+    }
+
+    /**
+     * Stores the attack set for every subset of the mask at the slot its magic index
+     * points to, walking the subsets with the carry-rippler trick
+     */
+    private static void fillMagicTable(int square, long mask, long magic, int shift, long[] table, boolean rook) {
+        long occupied = 0L;
+        do {
+            long attacks = rook ? slowRookAttacks(square, occupied) : slowBishopAttacks(square, occupied);
+            int index = (int) ((occupied * magic) >>> shift);
+            if (table[index] != 0 && table[index] != attacks) {
+                throw new IllegalStateException("Magic collision on square " + square);
+            }
+            table[index] = attacks;
+            occupied = (occupied - mask) & mask;
+        } while (occupied != 0);
+    }
+
+    /**
+     * @return the outer ranks and files, except those the square itself is on
+     */
+    private static long edgesBeyond(int square) {
+        return ((RANK_1 | RANK_8) & ~(RANK_1 << (square & ~7)))
+                | ((FILE_A | FILE_H) & ~(FILE_A << (square & 7)));
+    }
+
+    private static long slowRookAttacks(int square, long occupied) {
+        return ray(square, occupied, 1, 0) | ray(square, occupied, -1, 0)
+                | ray(square, occupied, 0, 1) | ray(square, occupied, 0, -1);
+    }
+
+    private static long slowBishopAttacks(int square, long occupied) {
+        return ray(square, occupied, 1, 1) | ray(square, occupied, 1, -1)
+                | ray(square, occupied, -1, 1) | ray(square, occupied, -1, -1);
+    }
+
+    /**
+     * Walks from a square in one direction until the edge of the board or the first
+     * occupied square, which is included so that captures show up as attacks. Only used
+     * to build the magic tables.
+     */
+    private static long ray(int square, long occupied, int rowStep, int columnStep) {
+        long attacks = 0L;
+        int row = row(square) + rowStep;
+        int column = column(square) + columnStep;
+        while (row >= 1 && row <= 8 && column >= 1 && column <= 8) {
+            long b = bit(square(row, column));
+            attacks |= b;
+            if ((occupied & b) != 0) {
+                break;
+            }
+            row += rowStep;
+            column += columnStep;
+        }
+        return attacks;
+    }
+
+    static long between(int from, int to) {
+        return BETWEEN[from][to];
+    }
+
+    static long line(int from, int to) {
+        return LINE[from][to];
+    }
+
+    /**
+     * Checks whether any piece of the given color attacks a square by looking outward
+     * from that square with each piece's attack pattern, cheapest first, so the answer
+     * costs a few table lookups instead of generating the opponent's moves
+     *
+     * @param occupied the occupancy that blocks sliders, which need not be the board's
+     */
+    static boolean isAttacked(ChessBoard board, int square, int color, long occupied) {
+        if ((pawnAttacks(square, 1 - color) & board.getBitboard(color, ChessPiece.PieceType.PAWN)) != 0
+                || (knightAttacks(square) & board.getBitboard(color, ChessPiece.PieceType.KNIGHT)) != 0
+                || (kingAttacks(square) & board.getBitboard(color, ChessPiece.PieceType.KING)) != 0) {
+            return true;
+        }
+        long queens = board.getBitboard(color, ChessPiece.PieceType.QUEEN);
+        long diagonal = board.getBitboard(color, ChessPiece.PieceType.BISHOP) | queens;
+        if (diagonal != 0 && (bishopAttacks(square, occupied) & diagonal) != 0) {
+            return true;
+        }
+        long straight = board.getBitboard(color, ChessPiece.PieceType.ROOK) | queens;
+        return straight != 0 && (rookAttacks(square, occupied) & straight) != 0;
+    }
+
+    /**
+     * @return the pieces of the given color that attack a square, with sliders blocked by
+     * the given occupancy
+     */
+    static long attackersTo(ChessBoard board, int square, int color, long occupied) {
+        long diagonal = board.getBitboard(color, ChessPiece.PieceType.BISHOP)
+                | board.getBitboard(color, ChessPiece.PieceType.QUEEN);
+        long straight = board.getBitboard(color, ChessPiece.PieceType.ROOK)
+                | board.getBitboard(color, ChessPiece.PieceType.QUEEN);
+        return (pawnAttacks(square, 1 - color) & board.getBitboard(color, ChessPiece.PieceType.PAWN))
+                | (knightAttacks(square) & board.getBitboard(color, ChessPiece.PieceType.KNIGHT))
+                | (kingAttacks(square) & board.getBitboard(color, ChessPiece.PieceType.KING))
+                | (bishopAttacks(square, occupied) & diagonal)
+                | (rookAttacks(square, occupied) & straight);
+    }
+}
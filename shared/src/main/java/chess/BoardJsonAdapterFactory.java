@@ -0,0 +1,67 @@
+package chess;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+/**
+ * Reads and writes a {@link ChessBoard} as JSON with its bitboards. Boards saved before
+ * the pieces were kept in bitboards hold a board field instead, an 8x8 array of pieces
+ * indexed [row - 1][column - 1]; those are read by placing each piece on a new board.
+ */
+class BoardJsonAdapterFactory implements TypeAdapterFactory {
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+        if (type.getRawType() != ChessBoard.class) {
+            return null;
+        }
+        TypeAdapter<ChessBoard> current = gson.getDelegateAdapter(this, TypeToken.get(ChessBoard.class));
+        TypeAdapter<ChessPiece[][]> legacy = gson.getAdapter(ChessPiece[][].class);
+        TypeAdapter<JsonElement> elements = gson.getAdapter(JsonElement.class);
+        return (TypeAdapter<T>) new TypeAdapter<ChessBoard>() {
+            @Override
+            public void write(JsonWriter out, ChessBoard board) throws IOException {
+                current.write(out, board);
+            }
+
+            @Override
+            public ChessBoard read(JsonReader in) throws IOException {
+                JsonElement json = elements.read(in);
+                if (json.isJsonObject() && isLegacy(json.getAsJsonObject())) {
+                    return fromSquares(legacy.fromJsonTree(json.getAsJsonObject().get("board")));
+                }
+                return current.fromJsonTree(json);
+            }
+        };
+    }
+
+    private static boolean isLegacy(JsonObject json) {
+        return json.has("board") && !json.has("pieces");
+    }
+
+    private static ChessBoard fromSquares(ChessPiece[][] squares) {
+        ChessBoard board = new ChessBoard();
+        if (squares == null) {
+            return board;
+        }
+        for (int row = 0; row < Math.min(8, squares.length); row++) {
+            ChessPiece[] rank = squares[row];
+            for (int column = 0; rank != null && column < Math.min(8, rank.length); column++) {
+                ChessPiece piece = rank[column];
+                if (piece != null && piece.getTeamColor() != null && piece.getPieceType() != null) {
+                    board.placePiece(row * 8 + column, ChessBoard.pieceIndex(piece.getTeamColor(), piece.getPieceType()));
+                }
+            }
+        }
+        return board;
+    }
+}
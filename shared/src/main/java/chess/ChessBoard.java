@@ -1,7 +1,8 @@
 package chess;
 
+import com.google.gson.annotations.JsonAdapter;
+
 import java.util.Arrays;
-import java.util.Objects;
 
 import static chess.ChessGame.TeamColor.BLACK;
 import static chess.ChessGame.TeamColor.WHITE;
@@ -13,9 +14,38 @@ import static chess.ChessPiece.PieceType.*;
  * Note: You can add to this class, but you may not alter
  * signature of the existing methods.
  */
+@JsonAdapter(BoardJsonAdapterFactory.class)
 public class ChessBoard {
 
-    private final ChessPiece[][] board = new ChessPiece[8][8];
+    private static final ChessPiece[] PIECES = new ChessPiece[12];
+
+    /*
+     * FEN letter of each piece index: upper case for white, in PieceType order.
+     */
+    private static final String FEN_PIECES = "KQBNRPkqbnrp";
+
+    static {
+        for (ChessGame.TeamColor color : new ChessGame.TeamColor[]{WHITE, BLACK}) {
+            for (ChessPiece.PieceType type : ChessPiece.PieceType.values()) {
+                PIECES[pieceIndex(color, type)] = ChessPiece.of(color, type);
+            }
+        }
+    }
+
+    /*
+     * One bitboard per color and piece type, indexed by pieceIndex(), plus the
+     * occupancy of each color. Bit n is set when square n holds that piece.
+     */
+    private final long[] pieces = new long[12];
+    private final long[] occupancy = new long[2];
+
+    /*
+     * Zobrist key of the piece placement, kept up to date by placePiece and removePiece
+     * once it has been computed. It is computed lazily so that a board filled in by Gson,
+     * which bypasses those methods, never reports a stale key.
+     */
+    private transient long key;
+    private transient boolean keyValid;
 
     public ChessBoard() {
 
@@ -26,9 +56,17 @@ public class ChessBoard {
      *
      * @param position where to add the piece to
      * @param piece    the piece to add
+     * @throws IllegalArgumentException if the position is off the board
      */
     public void addPiece(ChessPosition position, ChessPiece piece) {
-        board[position.getRow()-1][position.getColumn()-1] = piece;
+        if (!Bitboards.isOnBoard(position)) {
+            throw new IllegalArgumentException("Position is off the board: " + position);
+        }
+        int square = Bitboards.square(position);
+        removePiece(square);
+        if (piece != null) {
+            placePiece(square, pieceIndex(piece.getTeamColor(), piece.getPieceType()));
+        }
     }
 
     /**
@@ -36,10 +74,14 @@ public class ChessBoard {
      *
      * @param position The position to get the piece from
      * @return Either the piece at the position, or null if no piece is at that
-     * position
+     * position or the position is off the board
      */
     public ChessPiece getPiece(ChessPosition position) {
-        return board[position.getRow()-1][position.getColumn()-1];
+        if (!Bitboards.isOnBoard(position)) {
+            return null;
+        }
+        int index = pieceIndexAt(Bitboards.square(position));
+        return index < 0 ? null : PIECES[index];
     }
 
     /**
@@ -47,50 +89,208 @@ public class ChessBoard {
      * (How the game of chess normally starts)
      */
     public void resetBoard() {
-        board[0][0] = new ChessPiece(WHITE, ROOK);
-        board[0][1] = new ChessPiece(WHITE, KNIGHT);
-        board[0][2] = new ChessPiece(WHITE, BISHOP);
-        board[0][3] = new ChessPiece(WHITE, QUEEN);
-        board[0][4] = new ChessPiece(WHITE, KING);
-        board[0][5] = new ChessPiece(WHITE, BISHOP);
-        board[0][6] = new ChessPiece(WHITE, KNIGHT);
-        board[0][7] = new ChessPiece(WHITE, ROOK);
-        for (int i = 1; i < 2; i++) {
-            for (int j = 0; j < 8; j++) {
-                board[i][j] = new ChessPiece(WHITE, PAWN);
+        keyValid = false;
+        Arrays.fill(pieces, 0L);
+        pieces[pieceIndex(WHITE, ROOK)] = 0x81L;
+        pieces[pieceIndex(WHITE, KNIGHT)] = 0x42L;
+        pieces[pieceIndex(WHITE, BISHOP)] = 0x24L;
+        pieces[pieceIndex(WHITE, QUEEN)] = 0x08L;
+        pieces[pieceIndex(WHITE, KING)] = 0x10L;
+        pieces[pieceIndex(WHITE, PAWN)] = Bitboards.RANK_2;
+        pieces[pieceIndex(BLACK, ROOK)] = 0x81L << 56;
+        pieces[pieceIndex(BLACK, KNIGHT)] = 0x42L << 56;
+        pieces[pieceIndex(BLACK, BISHOP)] = 0x24L << 56;
+        pieces[pieceIndex(BLACK, QUEEN)] = 0x08L << 56;
+        pieces[pieceIndex(BLACK, KING)] = 0x10L << 56;
+        pieces[pieceIndex(BLACK, PAWN)] = Bitboards.RANK_7;
+        occupancy[Bitboards.WHITE] = Bitboards.RANK_1 | Bitboards.RANK_2;
+        occupancy[Bitboards.BLACK] = Bitboards.RANK_7 | Bitboards.RANK_8;
+    }
+
+    /**
+     * Creates a board from the piece placement field of a FEN record. A full record is
+     * accepted too; everything after the placement field is ignored.
+     *
+     * @param fen a FEN record or its first field
+     * @return the board described by the placement field
+     * @throws IllegalArgumentException if the placement field is malformed
+     */
+    public static ChessBoard fromFen(String fen) {
+        ChessBoard board = new ChessBoard();
+        int end = board.readFen(fen, 0);
+        if (end < fen.length() && fen.charAt(end) != ' ') {
+            throw new IllegalArgumentException("Invalid FEN piece placement: " + fen);
+        }
+        return board;
+    }
+
+    /**
+     * @return the piece placement field of a FEN record for this board, rank 8 first
+     */
+    public String toFen() {
+        StringBuilder fen = new StringBuilder(72);
+        appendFen(fen);
+        return fen.toString();
+    }
+
+    /**
+     * Places the pieces of a FEN placement field starting at the given index on this
+     * empty board
+     *
+     * @return the index just past the placement field
+     */
+    int readFen(String fen, int index) {
+        int row = 7;
+        int column = 0;
+        for (; index < fen.length() && fen.charAt(index) != ' '; index++) {
+            char c = fen.charAt(index);
+            if (c == '/') {
+                if (column != 8 || row == 0) {
+                    throw new IllegalArgumentException("Invalid FEN piece placement: " + fen);
+                }
+                row--;
+                column = 0;
+            } else if (c >= '1' && c <= '8') {
+                column += c - '0';
+            } else {
+                int piece = FEN_PIECES.indexOf(c);
+                if (piece < 0 || column > 7) {
+                    throw new IllegalArgumentException("Invalid FEN piece placement: " + fen);
+                }
+                placePiece(row * 8 + column, piece);
+                column++;
+            }
+            if (column > 8) {
+                throw new IllegalArgumentException("Invalid FEN piece placement: " + fen);
             }
         }
-        for (int i = 6; i < 7; i++) {
-            for (int j = 0; j < 8; j++) {
-                board[i][j] = new ChessPiece(BLACK, PAWN);
+        if (row != 0 || column != 8) {
+            throw new IllegalArgumentException("Invalid FEN piece placement: " + fen);
+        }
+        return index;
+    }
+
+    void appendFen(StringBuilder fen) {
+        for (int row = 7; row >= 0; row--) {
+            int empty = 0;
+            for (int column = 0; column < 8; column++) {
+                int piece = pieceIndexAt(row * 8 + column);
+                if (piece < 0) {
+                    empty++;
+                    continue;
+                }
+                if (empty > 0) {
+                    fen.append((char) ('0' + empty));
+                    empty = 0;
+                }
+                fen.append(FEN_PIECES.charAt(piece));
+            }
+            if (empty > 0) {
+                fen.append((char) ('0' + empty));
+            }
+            if (row > 0) {
+                fen.append('/');
             }
         }
-        board[7][0] = new ChessPiece(BLACK, ROOK);
-        board[7][1] = new ChessPiece(BLACK, KNIGHT);
-        board[7][2] = new ChessPiece(BLACK, BISHOP);
-        board[7][3] = new ChessPiece(BLACK, QUEEN);
-        board[7][4] = new ChessPiece(BLACK, KING);
-        board[7][5] = new ChessPiece(BLACK, BISHOP);
-        board[7][6] = new ChessPiece(BLACK, KNIGHT);
-        board[7][7] = new ChessPiece(BLACK, ROOK);
-        for (int i = 2; i < 6; i++) {
-            for (int j = 0; j < 8; j++) {
-                board[i][j] = null;
+    }
+
+    static int pieceIndex(ChessGame.TeamColor color, ChessPiece.PieceType type) {
+        return color.ordinal() * 6 + type.ordinal();
+    }
+
+    static ChessPiece pieceForIndex(int index) {
+        return PIECES[index];
+    }
+
+    /**
+     * @return the index of the piece on the given square, or -1 if the square is empty
+     */
+    int pieceIndexAt(int square) {
+        long b = Bitboards.bit(square);
+        if (((occupancy[Bitboards.WHITE] | occupancy[Bitboards.BLACK]) & b) == 0) {
+            return -1;
+        }
+        int first = (occupancy[Bitboards.WHITE] & b) != 0 ? 0 : 6;
+        for (int index = first; index < first + 6; index++) {
+            if ((pieces[index] & b) != 0) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    void placePiece(int square, int index) {
+        long b = Bitboards.bit(square);
+        pieces[index] |= b;
+        occupancy[index / 6] |= b;
+        if (keyValid) {
+            key ^= Zobrist.piece(index, square);
+        }
+    }
+
+    void removePiece(int square) {
+        int index = pieceIndexAt(square);
+        if (index >= 0) {
+            long b = Bitboards.bit(square);
+            pieces[index] &= ~b;
+            occupancy[index / 6] &= ~b;
+            if (keyValid) {
+                key ^= Zobrist.piece(index, square);
             }
         }
     }
 
+    /**
+     * @return the Zobrist key of the pieces on this board
+     */
+    long getZobristKey() {
+        if (!keyValid) {
+            long hash = 0L;
+            for (int index = 0; index < pieces.length; index++) {
+                for (long b = pieces[index]; b != 0; b &= b - 1) {
+                    hash ^= Zobrist.piece(index, Long.numberOfTrailingZeros(b));
+                }
+            }
+            key = hash;
+            keyValid = true;
+        }
+        return key;
+    }
+
+    long getBitboard(int color, ChessPiece.PieceType type) {
+        return pieces[color * 6 + type.ordinal()];
+    }
+
+    /**
+     * @return the square of the king of the given color, or -1 if it has none. A board
+     * holds each piece type in its own bitboard, so this is read straight off the
+     * king's bitboard and stays current through every move.
+     */
+    int getKingSquare(int color) {
+        long king = pieces[color * 6 + ChessPiece.PieceType.KING.ordinal()];
+        return king == 0 ? -1 : Long.numberOfTrailingZeros(king);
+    }
+
+    long getOccupancy(int color) {
+        return occupancy[color];
+    }
+
+    long getOccupied() {
+        return occupancy[Bitboards.WHITE] | occupancy[Bitboards.BLACK];
+    }
+
     @Override
     public boolean equals(Object o) {
         if (o == null || getClass() != o.getClass()) {
             return false;
         }
         ChessBoard that = (ChessBoard) o;
-        return Objects.deepEquals(board, that.board);
+        return Arrays.equals(pieces, that.pieces);
     }
 
     @Override
     public int hashCode() {
-        return Arrays.deepHashCode(board);
+        long hash = getZobristKey();
+        return (int) (hash ^ (hash >>> 32));
     }
 }
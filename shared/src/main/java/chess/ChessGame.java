@@ -11,15 +11,56 @@ import static chess.ChessPiece.PieceType.*;
  */
 public class ChessGame {
 
+    static final int WHITE_SHORT_CASTLE = 1;
+    static final int WHITE_LONG_CASTLE = 2;
+    static final int BLACK_SHORT_CASTLE = 4;
+    static final int BLACK_LONG_CASTLE = 8;
+    static final int ALL_CASTLING_RIGHTS = 15;
+    static final int NO_SQUARE = -1;
+
+    /*
+     * FEN letter of each castling right, in bit order.
+     */
+    private static final String FEN_CASTLING = "KQkq";
+
+    /*
+     * Castling rights that survive a move touching each square: moving a king or rook
+     * off its home square, or capturing a rook on its home square, clears that right.
+     */
+    private static final int[] CASTLING_MASK = new int[64];
+
+    static {
+        Arrays.fill(CASTLING_MASK, ALL_CASTLING_RIGHTS);
+        CASTLING_MASK[0] &= ~WHITE_LONG_CASTLE;
+        CASTLING_MASK[4] &= ~(WHITE_SHORT_CASTLE | WHITE_LONG_CASTLE);
+        CASTLING_MASK[7] &= ~WHITE_SHORT_CASTLE;
+        CASTLING_MASK[56] &= ~BLACK_LONG_CASTLE;
+        CASTLING_MASK[60] &= ~(BLACK_SHORT_CASTLE | BLACK_LONG_CASTLE);
+        CASTLING_MASK[63] &= ~BLACK_SHORT_CASTLE;
+    }
+
     private TeamColor currentTurn = TeamColor.WHITE;
     private ChessBoard currentBoard = new ChessBoard();
-    private ChessMove lastMove = new ChessMove(null, null, null);
-    private ChessPiece lastMovePiece = new ChessPiece(null, null);
-    private final Set<ChessPosition> movePositionCollection = new HashSet<>();
+    private int castlingRights = ALL_CASTLING_RIGHTS;
+    private int enPassantSquare = NO_SQUARE;
+    private int halfmoveClock = 0;
+    private int fullmoveNumber = 1;
+    private transient Undo[] undoStack = new Undo[32];
+    private transient int undoCount = 0;
+    private transient IntMoveList scratchMoves;
+
+    /*
+     * Games saved before castling rights and the en passant square were stored explicitly
+     * carry these instead. They are only ever filled in by Gson, are folded into the
+     * explicit state the first time the game is used, and are null from then on so they
+     * are left out of any JSON written afterwards.
+     */
+    private Set<ChessPosition> movePositionCollection;
+    private ChessMove lastMove;
+    private ChessPiece lastMovePiece;
 
     public ChessGame() {
         currentBoard.resetBoard();
-        movePositionCollection.clear();
     }
 
     public TeamColor getTeamTurn() {
@@ -28,11 +69,33 @@ public class ChessGame {
     public void setTeamTurn(TeamColor team) {
         currentTurn = team;
     }
+
+    /**
+     * Sets the en passant square from the move that led to the current position: the
+     * square skipped when it was a pawn's two-square advance, otherwise none
+     */
     public void setLastMove(ChessMove move) {
-        lastMove = move;
+        upgradeLegacyState();
+        enPassantSquare = NO_SQUARE;
+        if (move == null || move.getStartPosition() == null || move.getEndPosition() == null) {
+            return;
+        }
+        int from = Bitboards.square(move.getStartPosition());
+        int to = Bitboards.square(move.getEndPosition());
+        int pawn = currentBoard.pieceIndexAt(to);
+        if (Math.abs(to - from) == 16 && pawn >= 0 && pawn % 6 == PAWN.ordinal()) {
+            enPassantSquare = (from + to) / 2;
+        }
     }
+
+    /**
+     * Clears the en passant square unless the piece that made the last move was a pawn
+     */
     public void setLastMovePiece(ChessPiece piece) {
-        lastMovePiece = piece;
+        upgradeLegacyState();
+        if (piece == null || piece.getPieceType() != PAWN) {
+            enPassantSquare = NO_SQUARE;
+        }
     }
 
     @Override
@@ -41,15 +104,20 @@ public class ChessGame {
             return false;
         }
         ChessGame chessGame = (ChessGame) o;
+        upgradeLegacyState();
+        chessGame.upgradeLegacyState();
         return currentTurn == chessGame.currentTurn
-                && Objects.equals(currentBoard, chessGame.currentBoard)
-                && Objects.equals(lastMove, chessGame.lastMove)
-                && Objects.equals(lastMovePiece, chessGame.lastMovePiece)
-                && Objects.equals(movePositionCollection, chessGame.movePositionCollection);
+                && castlingRights == chessGame.castlingRights
+                && enPassantSquare == chessGame.enPassantSquare
+                && halfmoveClock == chessGame.halfmoveClock
+                && fullmoveNumber == chessGame.fullmoveNumber
+                && Objects.equals(currentBoard, chessGame.currentBoard);
     }
     @Override
     public int hashCode() {
-        return Objects.hash(currentTurn, currentBoard, lastMove, lastMovePiece, movePositionCollection);
+        upgradeLegacyState();
+        return Objects.hash(currentTurn, currentBoard, castlingRights, enPassantSquare, halfmoveClock,
+                fullmoveNumber);
     }
 
     public enum TeamColor {WHITE, BLACK, GAME_OVER}
@@ -58,439 +126,607 @@ public class ChessGame {
         ChessPiece piece = currentBoard.getPiece(startPosition);
         if (piece == null) {
             return null;
-        } else {
-            TeamColor pieceColor = piece.getTeamColor();
-            Collection<ChessMove> moves = piece.pieceMoves(currentBoard, startPosition);
-            if (isEnPassantValid(startPosition)) {
-                ChessPosition endPosition;
-                if (piece.getTeamColor() == TeamColor.WHITE) {
-                    endPosition = new ChessPosition(6, lastMove.getEndPosition().getColumn());
-                } else {
-                    endPosition = new ChessPosition(3, lastMove.getEndPosition().getColumn());
-                }
-                ChessMove newMove = new ChessMove(startPosition, endPosition, null);
-                moves.add(newMove);
-            }
-            Collection<ChessMove> valid = new ArrayList<>();
-            currentBoard.addPiece(startPosition,null);
-            for (ChessMove move: moves) {
-                ChessPiece oldPiece = currentBoard.getPiece(move.getEndPosition());
-                currentBoard.addPiece(move.getEndPosition(), piece);
-                if (!isInCheck(pieceColor)) {
-                    valid.add(move);
-                }
-                currentBoard.addPiece(move.getEndPosition(), oldPiece);
-            }
-            currentBoard.addPiece(startPosition, piece);
-            if (piece.getPieceType() == KING) {
-                if (isShortCastleValid()) {
-                    ChessPosition endPosition;
-                    if (piece.getTeamColor() == TeamColor.WHITE) {
-                        endPosition = new ChessPosition(1, 7);
-                    } else {
-                        endPosition = new ChessPosition(8,7);
-                    }
-                    ChessMove newMove = new ChessMove(startPosition, endPosition, null);
-                    valid.add(newMove);
-                }
-                if (isLongCastleValid()) {
-                    ChessPosition endPosition;
-                    if (piece.getTeamColor() == TeamColor.WHITE) {
-                        endPosition = new ChessPosition(1, 3);
-                    } else {
-                        endPosition = new ChessPosition(8,3);
-                    }
-                    ChessMove newMove = new ChessMove(startPosition, endPosition, null);
-                    valid.add(newMove);
-                }
-            }
-            return valid;
+        }
+        upgradeLegacyState();
+        IntMoveList moves = scratchMoves();
+        MoveGenerator.generate(currentBoard, piece.getTeamColor().ordinal(), castlingRights, enPassantSquare,
+                Bitboards.bit(Bitboards.square(startPosition)), moves);
+        Collection<ChessMove> valid = new ArrayList<>(moves.size());
+        moves.addTo(valid);
+        return valid;
+    }
+
+    /**
+     * Gets every legal move of the team whose turn it is, generated in one pass over the
+     * board instead of piece by piece
+     *
+     * @return the legal moves, empty once the game is over
+     */
+    public Collection<ChessMove> legalMoves() {
+        IntMoveList moves = scratchMoves();
+        legalMoves(moves);
+        Collection<ChessMove> legal = new ArrayList<>(moves.size());
+        moves.addTo(legal);
+        return legal;
+    }
+
+    /**
+     * Replaces the contents of a move list with the encoded legal moves of the team whose
+     * turn it is
+     */
+    void legalMoves(IntMoveList moves) {
+        upgradeLegacyState();
+        moves.clear();
+        if (isPlayingTeam(currentTurn)) {
+            MoveGenerator.generate(currentBoard, currentTurn.ordinal(), castlingRights, enPassantSquare, -1L, moves);
         }
     }
 
     public void makeMove(ChessMove move) throws InvalidMoveException {
-        ChessPosition startPosition = move.getStartPosition();
-        ChessPosition endPosition = move.getEndPosition();
-        ChessPiece piece = currentBoard.getPiece(startPosition);
-        Collection<ChessMove> moves = validMoves(startPosition);
-        if (moves == null || !moves.contains(move) || piece.getTeamColor() != currentTurn) {
+        if (!Bitboards.isOnBoard(move.getStartPosition()) || !Bitboards.isOnBoard(move.getEndPosition())) {
+            throw new InvalidMoveException();
+        }
+        ChessPiece piece = currentBoard.getPiece(move.getStartPosition());
+        if (piece == null || piece.getTeamColor() != currentTurn) {
             throw new InvalidMoveException();
-        } else if (piece.getPieceType() == KING) {
-            makeKingMove(startPosition, endPosition, piece);
-        } else {
-            ChessPiece newPiece;
-            if (move.getPromotionPiece() == null) {
-                newPiece = piece;
-            } else {
-                newPiece = new ChessPiece(piece.getTeamColor(), move.getPromotionPiece());
-            }
-            if (piece.getPieceType() == PAWN) {
-                makePawnMove(startPosition, piece, endPosition);
-            }
-            currentBoard.addPiece(startPosition, null);
-            currentBoard.addPiece(endPosition, newPiece);
         }
-        if (piece.getTeamColor() == TeamColor.WHITE) {
-            setTeamTurn(TeamColor.BLACK);
+        upgradeLegacyState();
+        int from = Bitboards.square(move.getStartPosition());
+        IntMoveList moves = scratchMoves();
+        MoveGenerator.generate(currentBoard, currentTurn.ordinal(), castlingRights, enPassantSquare,
+                Bitboards.bit(from), moves);
+        int legal = moves.find(encode(move));
+        if (legal == -1) {
+            throw new InvalidMoveException();
+        }
+        applyMove(legal);
+    }
+
+    /**
+     * Plays a move without checking that it is legal and records what is needed to take
+     * it back with {@link #unmakeMove()}. Meant for moves that came from validMoves.
+     *
+     * @param move the move to play for the piece on its start position
+     */
+    public void applyMove(ChessMove move) {
+        upgradeLegacyState();
+        applyMove(encode(move));
+    }
+
+    /**
+     * Plays a move encoded by {@link Move}, trusting its flags for en passant captures,
+     * castling and two-square pawn advances
+     */
+    void applyMove(int move) {
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int moving = currentBoard.pieceIndexAt(from);
+        int color = moving / 6;
+        boolean pawnMove = moving % 6 == PAWN.ordinal();
+
+        int captureSquare = to;
+        if (Move.hasFlag(move, Move.EN_PASSANT)) {
+            captureSquare = color == Bitboards.WHITE ? to - 8 : to + 8;
+        }
+        int captured = currentBoard.pieceIndexAt(captureSquare);
+
+        Undo undo = pushUndo();
+        undo.positionKey = getPositionKey();
+        undo.move = move;
+        undo.moved = moving;
+        undo.captured = captured;
+        undo.captureSquare = captureSquare;
+        undo.castlingRights = castlingRights;
+        undo.enPassantSquare = enPassantSquare;
+        undo.halfmoveClock = halfmoveClock;
+        undo.turn = currentTurn;
+
+        if (captured >= 0) {
+            currentBoard.removePiece(captureSquare);
+        }
+        currentBoard.removePiece(from);
+        ChessPiece.PieceType promotion = Move.promotion(move);
+        currentBoard.placePiece(to, promotion == null ? moving : color * 6 + promotion.ordinal());
+        if (Move.hasFlag(move, Move.CASTLE)) {
+            int rookFrom = to > from ? to + 1 : to - 2;
+            int rook = currentBoard.pieceIndexAt(rookFrom);
+            currentBoard.removePiece(rookFrom);
+            currentBoard.placePiece((from + to) / 2, rook);
+        }
+
+        castlingRights &= CASTLING_MASK[from] & CASTLING_MASK[to];
+        enPassantSquare = Move.hasFlag(move, Move.DOUBLE_PUSH) ? (from + to) / 2 : NO_SQUARE;
+        if (pawnMove || captured >= 0) {
+            halfmoveClock = 0;
         } else {
-            setTeamTurn(TeamColor.WHITE);
+            halfmoveClock++;
         }
-        setLastMove(move);
-        setLastMovePiece(piece);
-        movePositionCollection.add(startPosition);
+        if (color == Bitboards.BLACK) {
+            fullmoveNumber++;
+        }
+        currentTurn = color == Bitboards.WHITE ? TeamColor.BLACK : TeamColor.WHITE;
     }
 
-    private void makePawnMove(ChessPosition startPosition, ChessPiece piece, ChessPosition endPosition) {
-        if (isEnPassantValid(startPosition)) {
-            if (piece.getTeamColor() == TeamColor.WHITE) {
-                if (endPosition.getRow() == 6 && endPosition.getColumn() == lastMove.getEndPosition().getColumn()) {
-                    currentBoard.addPiece(lastMove.getEndPosition(), null);
-                }
-            } else {
-                if (endPosition.getRow() == 3 && endPosition.getColumn() == lastMove.getEndPosition().getColumn()) {
-                    currentBoard.addPiece(lastMove.getEndPosition(), null);
-                }
-            }
+    /**
+     * Takes back the most recent move played with makeMove or applyMove, restoring the
+     * board, turn, castling rights, en passant square and halfmove clock
+     *
+     * @throws IllegalStateException if there is no move to take back
+     */
+    public void unmakeMove() {
+        if (undoCount == 0) {
+            throw new IllegalStateException("No move to take back");
+        }
+        Undo undo = undoStack[--undoCount];
+        int from = Move.from(undo.move);
+        int to = Move.to(undo.move);
+
+        currentBoard.removePiece(to);
+        currentBoard.placePiece(from, undo.moved);
+        if (undo.captured >= 0) {
+            currentBoard.placePiece(undo.captureSquare, undo.captured);
+        }
+        if (Move.hasFlag(undo.move, Move.CASTLE)) {
+            int rookTo = (from + to) / 2;
+            int rook = currentBoard.pieceIndexAt(rookTo);
+            currentBoard.removePiece(rookTo);
+            currentBoard.placePiece(to > from ? to + 1 : to - 2, rook);
         }
+
+        castlingRights = undo.castlingRights;
+        enPassantSquare = undo.enPassantSquare;
+        halfmoveClock = undo.halfmoveClock;
+        if (undo.moved / 6 == Bitboards.BLACK) {
+            fullmoveNumber--;
+        }
+        currentTurn = undo.turn;
     }
 
-    private void makeKingMove(ChessPosition startPosition, ChessPosition endPosition, ChessPiece piece) {
-        if (currentTurn == TeamColor.WHITE) {
-            if (startPosition.equals(new ChessPosition(1,5))) {
-                if (endPosition.equals(new ChessPosition(1,7))) {
-                    ChessPiece rook = currentBoard.getPiece(new ChessPosition(1, 8));
-                    currentBoard.addPiece(new ChessPosition(1, 8), null);
-                    currentBoard.addPiece(new ChessPosition(1, 7), piece);
-                    currentBoard.addPiece(new ChessPosition(1, 6), rook);
-                    currentBoard.addPiece(new ChessPosition(1, 5), null);
-                } else if (endPosition.equals(new ChessPosition(1,3))) {
-                    ChessPiece rook = currentBoard.getPiece(new ChessPosition(1,1));
-                    currentBoard.addPiece(new ChessPosition(1, 1), null);
-                    currentBoard.addPiece(new ChessPosition(1, 3), piece);
-                    currentBoard.addPiece(new ChessPosition(1, 4), rook);
-                    currentBoard.addPiece(new ChessPosition(1, 5), null);
-                } else {
-                    currentBoard.addPiece(startPosition,null);
-                    currentBoard.addPiece(endPosition, piece);
-                }
-            } else {
-                currentBoard.addPiece(startPosition,null);
-                currentBoard.addPiece(endPosition, piece);
+    /**
+     * Encodes a move played on the current board, working out from the moving piece which
+     * flags it needs
+     */
+    private int encode(ChessMove move) {
+        int from = Bitboards.square(move.getStartPosition());
+        int to = Bitboards.square(move.getEndPosition());
+        if (move.getPromotionPiece() != null) {
+            return Move.encode(from, to, move.getPromotionPiece());
+        }
+        int moving = currentBoard.pieceIndexAt(from);
+        if (moving % 6 == PAWN.ordinal()) {
+            if (Math.abs(to - from) == 16) {
+                return Move.encode(from, to, Move.DOUBLE_PUSH);
             }
-        } else {
-            if (startPosition.equals(new ChessPosition(8,5))) {
-                if (endPosition.equals(new ChessPosition(8, 7))) {
-                    ChessPiece rook = currentBoard.getPiece(new ChessPosition(8, 8));
-                    currentBoard.addPiece(new ChessPosition(8, 8), null);
-                    currentBoard.addPiece(new ChessPosition(8, 7), piece);
-                    currentBoard.addPiece(new ChessPosition(8, 6), rook);
-                    currentBoard.addPiece(new ChessPosition(8, 5), null);
-                } else if (endPosition.equals(new ChessPosition(8, 3))) {
-                    ChessPiece rook = currentBoard.getPiece(new ChessPosition(8, 1));
-                    currentBoard.addPiece(new ChessPosition(8, 1), null);
-                    currentBoard.addPiece(new ChessPosition(8, 3), piece);
-                    currentBoard.addPiece(new ChessPosition(8, 4), rook);
-                    currentBoard.addPiece(new ChessPosition(8, 5), null);
-                } else {
-                    currentBoard.addPiece(startPosition,null);
-                    currentBoard.addPiece(endPosition, piece);
-                }
-            } else {
-                currentBoard.addPiece(startPosition,null);
-                currentBoard.addPiece(endPosition, piece);
+            if (to == enPassantSquare && (from & 7) != (to & 7)) {
+                return Move.encode(from, to, Move.EN_PASSANT);
             }
+        } else if (moving % 6 == KING.ordinal() && Math.abs(to - from) == 2) {
+            return Move.encode(from, to, Move.CASTLE);
         }
+        return Move.encode(from, to);
     }
 
-    public boolean isInCheck(TeamColor teamColor) {
-        ChessPosition kingPosition = null;
-        Set<ChessPosition> testMovePositions = new HashSet<>();
-        for (int i = 1; i <= 8; i++) {
-            for (int j = 1; j <= 8; j++) {
-                ChessPosition testPosition = new ChessPosition(i, j);
-                ChessPiece testPiece = currentBoard.getPiece(testPosition);
-                kingPosition = doesTestPieceCheckKing(teamColor, testPiece, kingPosition, testPosition, testMovePositions);
+    private IntMoveList scratchMoves() {
+        if (scratchMoves == null) {
+            scratchMoves = new IntMoveList();
+        }
+        scratchMoves.clear();
+        return scratchMoves;
+    }
+
+    /**
+     * Gets the Zobrist key of the current position: piece placement, side to move,
+     * castling rights and, when a capture is actually possible, the en passant file.
+     * The placement part is updated incrementally by the board as moves are made and
+     * taken back, so this is a handful of XORs.
+     *
+     * @return a 64-bit key that is equal for identical positions
+     */
+    public long getPositionKey() {
+        upgradeLegacyState();
+        long key = currentBoard.getZobristKey() ^ Zobrist.castling(castlingRights);
+        if (currentTurn == TeamColor.BLACK) {
+            key ^= Zobrist.blackToMove();
+        }
+        if (enPassantSquare != NO_SQUARE && isPlayingTeam(currentTurn)) {
+            int color = currentTurn.ordinal();
+            long capturers = Bitboards.pawnAttacks(enPassantSquare, 1 - color) & currentBoard.getBitboard(color, PAWN);
+            if (capturers != 0) {
+                key ^= Zobrist.enPassant(enPassantSquare);
             }
         }
-        for (ChessPosition testPosition : testMovePositions) {
-            if (testPosition.equals(kingPosition)) {
+        return key;
+    }
+
+    /**
+     * Checks whether the current position has occurred at least twice before among the
+     * moves made on this game object since its board was last set. Only positions since
+     * the last capture or pawn move can repeat, so the search stops there.
+     *
+     * @return True if the current position has now occurred three times
+     */
+    public boolean isThreefoldRepetition() {
+        long key = getPositionKey();
+        int repetitions = 0;
+        int oldest = Math.max(0, undoCount - halfmoveClock);
+        for (int i = undoCount - 2; i >= oldest; i -= 2) {
+            if (undoStack[i].positionKey == key && ++repetitions == 2) {
                 return true;
             }
         }
         return false;
     }
 
-    private ChessPosition doesTestPieceCheckKing(TeamColor teamColor,
-                                                 ChessPiece testPiece,
-                                                 ChessPosition kingPosition,
-                                                 ChessPosition testPosition,
-                                                 Set<ChessPosition> testMovePositions) {
-        if (testPiece != null) {
-            if (testPiece.getTeamColor() == teamColor && testPiece.getPieceType() == KING) {
-                kingPosition = testPosition;
-            } else if (testPiece.getTeamColor() != teamColor && testPiece.getPieceType() != null) {
-                Collection<ChessMove> testMoves = testPiece.pieceMoves(currentBoard, testPosition);
-                for (ChessMove testMove : testMoves) {
-                    testMovePositions.add(testMove.getEndPosition());
-                }
-            }
+    private Undo pushUndo() {
+        if (undoCount == undoStack.length) {
+            undoStack = Arrays.copyOf(undoStack, undoCount * 2);
         }
-        return kingPosition;
+        Undo undo = undoStack[undoCount];
+        if (undo == null) {
+            undo = new Undo();
+            undoStack[undoCount] = undo;
+        }
+        undoCount++;
+        return undo;
     }
 
-    public boolean isInCheckmate(TeamColor teamColor) {
-        if (isInCheck(teamColor)) {
-            for (int i = 1; i <= 8; i++) {
-                for (int j = 1; j <= 8; j++) {
-                    ChessPosition testPosition = new ChessPosition(i,j);
-                    ChessPiece testPiece = currentBoard.getPiece(testPosition);
-                    if (isInCheckmateHelper(teamColor, testPiece, testPosition)) {
-                        return false;
-                    }
-                }
-            }
-            return true;
+    public boolean isInCheck(TeamColor teamColor) {
+        if (teamColor != TeamColor.WHITE && teamColor != TeamColor.BLACK) {
+            return false;
         }
-        return false;
+        int color = teamColor.ordinal();
+        int kingSquare = currentBoard.getKingSquare(color);
+        return kingSquare >= 0
+                && Bitboards.isAttacked(currentBoard, kingSquare, 1 - color, currentBoard.getOccupied());
     }
 
-    private boolean isInCheckmateHelper(TeamColor teamColor, ChessPiece testPiece, ChessPosition testPosition) {
-        if (testPiece != null && testPiece.getTeamColor() == teamColor) {
-            Collection<ChessMove> testMoves = validMoves(testPosition);
-            return !testMoves.isEmpty();
+    /**
+     * Checks whether any piece of a team attacks a square, whether or not moving there
+     * would be legal for it
+     *
+     * @param position the square to test
+     * @param teamColor the attacking team
+     * @return True if a piece of that team attacks the square
+     */
+    public boolean isSquareAttacked(ChessPosition position, TeamColor teamColor) {
+        if (!isPlayingTeam(teamColor) || !Bitboards.isOnBoard(position)) {
+            return false;
         }
-        return false;
+        return Bitboards.isAttacked(currentBoard, Bitboards.square(position), teamColor.ordinal(),
+                currentBoard.getOccupied());
+    }
+
+    public boolean isInCheckmate(TeamColor teamColor) {
+        return isInCheck(teamColor) && !hasValidMove(teamColor);
     }
 
     public boolean isInStalemate(TeamColor teamColor) {
         if (teamColor == getTeamTurn()) {
-            if (!isInCheck(teamColor)) {
-                Collection<ChessMove> kingMoves = new ArrayList<>();
-                for (int i = 1; i <= 8; i++) {
-                    for (int j = 1; j <= 8; j++) {
-                        ChessPosition testPosition = new ChessPosition(i, j);
-                        ChessPiece testPiece = currentBoard.getPiece(testPosition);
-                        kingMoves = isInStalemateHelper(testPiece, teamColor, testPosition, kingMoves);
-                    }
-                }
-                return kingMoves.isEmpty();
-            }
+            return !isInCheck(teamColor) && !hasValidMove(teamColor);
         }
         return false;
     }
-    
-    private Collection<ChessMove> isInStalemateHelper(ChessPiece testPiece,
-                                                      TeamColor teamColor,
-                                                      ChessPosition testPosition,
-                                                      Collection<ChessMove> kingMoves) {
-        if (testPiece != null) {
-            if (testPiece.getTeamColor() == teamColor && testPiece.getPieceType() == KING) {
-                kingMoves = validMoves(testPosition);
-            } else if (testPiece.getTeamColor() == teamColor && testPiece.getPieceType() != KING) {
-                if (!validMoves(testPosition).isEmpty()) {
-                    kingMoves = validMoves(testPosition);
-                }
-            }
+
+    private boolean hasValidMove(TeamColor teamColor) {
+        if (!isPlayingTeam(teamColor)) {
+            return false;
         }
-        return kingMoves;
+        upgradeLegacyState();
+        IntMoveList moves = scratchMoves();
+        MoveGenerator.generate(currentBoard, teamColor.ordinal(), castlingRights, enPassantSquare, -1L, moves);
+        return !moves.isEmpty();
     }
 
     public void setBoard(ChessBoard board) {
         currentBoard = board;
-        movePositionCollection.clear();
+        movePositionCollection = null;
+        lastMove = null;
+        lastMovePiece = null;
+        castlingRights = castlingRightsFromBoard();
+        enPassantSquare = NO_SQUARE;
+        halfmoveClock = 0;
+        fullmoveNumber = 1;
+        undoCount = 0;
     }
 
     public ChessBoard getBoard() {
         return currentBoard;
     }
 
-    public boolean isEnPassantValid(ChessPosition startPosition) {
-        if (lastMovePiece.getPieceType() == PAWN) {
-            ChessPiece piece = currentBoard.getPiece(startPosition);
-            if (piece.getPieceType() == PAWN && piece.getTeamColor() == TeamColor.WHITE) {
-                if (lastMove.getStartPosition().getRow() == 7 && lastMove.getEndPosition().getRow() == 5) {
-                    if (startPosition.getRow() == 5) {
-                        return Math.abs(lastMove.getEndPosition().getColumn() - startPosition.getColumn()) == 1;
-                    }
-                }
-            } else if (piece.getPieceType() == PAWN && piece.getTeamColor() == TeamColor.BLACK) {
-                if (lastMove.getStartPosition().getRow() == 2 && lastMove.getEndPosition().getRow() == 4) {
-                    if (startPosition.getRow() == 4) {
-                        return Math.abs(lastMove.getEndPosition().getColumn() - startPosition.getColumn()) == 1;
-                    }
-                }
-            }
-        }
-        return false;
+    int getCastlingRights() {
+        upgradeLegacyState();
+        return castlingRights;
     }
 
-    public boolean isShortCastleValid() {
-        boolean castle = false;
-        ChessPosition whiteKingPosition = new ChessPosition(1,5);
-        ChessPiece whiteKing = currentBoard.getPiece(whiteKingPosition);
-        if (whiteKing != null) {
-            if (whiteKing.getTeamColor() == TeamColor.WHITE) {
-                ChessPosition rookPosition = new ChessPosition(1, 8);
-                ChessPiece rook = currentBoard.getPiece(rookPosition);
-                if (rook != null) {
-                    castle = isShortCastleValidHelper(TeamColor.WHITE, whiteKing, rook, castle, whiteKingPosition);
-                }
-            }
+    int getEnPassantSquare() {
+        upgradeLegacyState();
+        return enPassantSquare;
+    }
+
+    int getHalfmoveClock() {
+        return halfmoveClock;
+    }
+
+    int getFullmoveNumber() {
+        return fullmoveNumber;
+    }
+
+    /**
+     * @return the number of half-moves played, counted from the fullmove number and the
+     * side to move. Once the game is over it counts as though white were to move.
+     */
+    public int getPly() {
+        return (fullmoveNumber - 1) * 2 + (currentTurn == TeamColor.BLACK ? 1 : 0);
+    }
+
+    /**
+     * Puts the game in a position read back from storage, with no moves to take back
+     */
+    void restorePosition(ChessBoard board, TeamColor turn, int castlingRights, int enPassantSquare,
+                         int halfmoveClock, int fullmoveNumber) {
+        setBoard(board);
+        this.currentTurn = turn;
+        this.castlingRights = castlingRights;
+        this.enPassantSquare = enPassantSquare;
+        this.halfmoveClock = halfmoveClock;
+        this.fullmoveNumber = fullmoveNumber;
+    }
+
+    /**
+     * Creates a game from a FEN record. The halfmove clock and fullmove number may be
+     * left off, in which case they start at 0 and 1.
+     *
+     * @param fen placement, side to move, castling rights, en passant square, and
+     *            optionally the halfmove clock and fullmove number, separated by spaces
+     * @return a game in that position with no moves to take back
+     * @throws IllegalArgumentException if the record is malformed
+     */
+    public static ChessGame fromFen(String fen) {
+        ChessBoard board = new ChessBoard();
+        int index = board.readFen(fen, 0);
+        ChessGame game = new ChessGame();
+        game.setBoard(board);
+
+        index = skipSpace(fen, index);
+        char side = index < fen.length() ? fen.charAt(index++) : '?';
+        if (side == 'w') {
+            game.currentTurn = TeamColor.WHITE;
+        } else if (side == 'b') {
+            game.currentTurn = TeamColor.BLACK;
+        } else {
+            throw new IllegalArgumentException("Invalid FEN side to move: " + fen);
         }
-        ChessPosition blackKingPosition = new ChessPosition(8, 5);
-        ChessPiece blackKing = currentBoard.getPiece(blackKingPosition);
-        if (blackKing != null) {
-             if (blackKing.getTeamColor() == TeamColor.BLACK) {
-                 ChessPosition rookPosition = new ChessPosition(8, 8);
-                 ChessPiece rook = currentBoard.getPiece(rookPosition);
-                 if (rook != null) {
-                     castle = isShortCastleValidHelper(TeamColor.BLACK, blackKing, rook, castle, blackKingPosition);
+
+        index = skipSpace(fen, index);
+        int rights = 0;
+        if (index < fen.length() && fen.charAt(index) == '-') {
+            index++;
+        } else {
+            for (; index < fen.length() && fen.charAt(index) != ' '; index++) {
+                int right = FEN_CASTLING.indexOf(fen.charAt(index));
+                if (right < 0) {
+                    throw new IllegalArgumentException("Invalid FEN castling rights: " + fen);
                 }
+                rights |= 1 << right;
             }
         }
-        return castle;
+        game.castlingRights = rights;
+
+        index = skipSpace(fen, index);
+        if (index < fen.length() && fen.charAt(index) == '-') {
+            index++;
+        } else if (index + 1 < fen.length() && fen.charAt(index) >= 'a' && fen.charAt(index) <= 'h'
+                && (fen.charAt(index + 1) == '3' || fen.charAt(index + 1) == '6')) {
+            game.enPassantSquare = Bitboards.square(fen.charAt(index + 1) - '0', fen.charAt(index) - 'a' + 1);
+            index += 2;
+        } else {
+            throw new IllegalArgumentException("Invalid FEN en passant square: " + fen);
+        }
+
+        if (index < fen.length()) {
+            index = skipSpace(fen, index);
+            int end = fen.indexOf(' ', index);
+            end = end < 0 ? fen.length() : end;
+            game.halfmoveClock = parseCounter(fen, index, end);
+            index = skipSpace(fen, end);
+            game.fullmoveNumber = Math.max(1, parseCounter(fen, index, fen.length()));
+        }
+        return game;
     }
 
-    private boolean isShortCastleValidHelper(TeamColor teamColor, ChessPiece king, ChessPiece rook, boolean castle, ChessPosition kingPosition) {
-        if (teamColor == TeamColor.WHITE) {
-            if (king.getPieceType() == KING && whiteKingHasNotMoved()) {
-                if (rook.getPieceType() == ROOK && whiteKingSideRookHasNotMoved()) {
-                    castle = isShortCastleValidHelper2(teamColor, king, castle, kingPosition);
-                }
+    /**
+     * Writes the current position as a FEN record. A finished game, whose turn is
+     * GAME_OVER, is written with white to move.
+     *
+     * @return placement, side to move, castling rights, en passant square, halfmove
+     * clock and fullmove number
+     */
+    public String toFen() {
+        upgradeLegacyState();
+        StringBuilder fen = new StringBuilder(90);
+        currentBoard.appendFen(fen);
+        fen.append(currentTurn == TeamColor.BLACK ? " b " : " w ");
+        if (castlingRights == 0) {
+            fen.append('-');
+        }
+        for (int right = 0; right < FEN_CASTLING.length(); right++) {
+            if ((castlingRights & (1 << right)) != 0) {
+                fen.append(FEN_CASTLING.charAt(right));
             }
+        }
+        fen.append(' ');
+        if (enPassantSquare == NO_SQUARE) {
+            fen.append('-');
         } else {
-            if (king.getPieceType() == KING && blackKingHasNotMoved()) {
-                if (rook.getPieceType() == ROOK && blackKingSideRookHasNotMoved()) {
-                    castle = isShortCastleValidHelper2(teamColor, king, castle, kingPosition);
-                }
-            }
+            fen.append((char) ('a' + (enPassantSquare & 7))).append((char) ('1' + (enPassantSquare >>> 3)));
         }
-        return castle;
+        return fen.append(' ').append(halfmoveClock).append(' ').append(fullmoveNumber).toString();
     }
 
-    private boolean isShortCastleValidHelper2(TeamColor teamColor, ChessPiece king, boolean castle, ChessPosition kingPosition) {
-        ChessPosition col6;
-        ChessPosition col7;
-        if (teamColor == TeamColor.WHITE) {
-            col6 = new ChessPosition(1, 6);
-            col7 = new ChessPosition(1, 7);
-        } else {
-            col6 = new ChessPosition(8, 6);
-            col7 = new ChessPosition(8, 7);
-        }
-        ChessPiece col6Piece = currentBoard.getPiece(col6);
-        ChessPiece col7Piece = currentBoard.getPiece(col7);
-        if (col6Piece == null && col7Piece == null) {
-            castle = isInCheckDuringCastle(teamColor, castle, kingPosition, king, col6, col7);
-        }
-        return castle;
-    }
-
-    private boolean isInCheckDuringCastle(TeamColor teamColor,
-                                          boolean castle,
-                                          ChessPosition kingPosition,
-                                          ChessPiece king,
-                                          ChessPosition movingKingPosition,
-                                          ChessPosition finalKingPosition) {
-        if (!isInCheck(teamColor)) {
-            currentBoard.addPiece(kingPosition, null);
-            currentBoard.addPiece(movingKingPosition, king);
-            if (!isInCheck(teamColor)) {
-                currentBoard.addPiece(movingKingPosition, null);
-                currentBoard.addPiece(finalKingPosition, king);
-                if (!isInCheck(teamColor)) {
-                    castle = true;
-                }
-            }
-            currentBoard.addPiece(movingKingPosition, null);
-            currentBoard.addPiece(finalKingPosition, null);
-            currentBoard.addPiece(kingPosition, king);
+    private static int skipSpace(String fen, int index) {
+        if (index >= fen.length() || fen.charAt(index) != ' ') {
+            throw new IllegalArgumentException("Incomplete FEN record: " + fen);
         }
-        return castle;
+        return index + 1;
     }
 
-    public boolean isLongCastleValid() {
-        boolean castle = false;
-        ChessPosition whiteKingPosition = new ChessPosition(1,5);
-        ChessPiece whiteKing = currentBoard.getPiece(whiteKingPosition);
-        if (whiteKing != null) {
-            if (whiteKing.getTeamColor() == TeamColor.WHITE) {
-                ChessPosition rookPosition = new ChessPosition(1, 1);
-                ChessPiece rook = currentBoard.getPiece(rookPosition);
-                if (rook != null) {
-                    castle = isLongCastleValidHelper(TeamColor.WHITE, whiteKing, rook, castle, whiteKingPosition);
-                }
-            }
+    private static int parseCounter(String fen, int start, int end) {
+        if (start >= end) {
+            throw new IllegalArgumentException("Invalid FEN move counter: " + fen);
         }
-        ChessPosition blackKingPosition = new ChessPosition(8,5);
-        ChessPiece blackKing = currentBoard.getPiece(blackKingPosition);
-        if (blackKing != null) {
-            if (blackKing.getTeamColor() == TeamColor.BLACK) {
-                ChessPosition rookPosition = new ChessPosition(8, 8);
-                ChessPiece rook = currentBoard.getPiece(rookPosition);
-                if (rook != null) {
-                    castle = isLongCastleValidHelper(TeamColor.BLACK, blackKing, rook, castle, blackKingPosition);
-                }
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            char c = fen.charAt(i);
+            if (c < '0' || c > '9' || value > 100_000) {
+                throw new IllegalArgumentException("Invalid FEN move counter: " + fen);
             }
+            value = value * 10 + (c - '0');
         }
-        return castle;
+        return value;
     }
 
-    private boolean isLongCastleValidHelper(TeamColor teamColor, ChessPiece king, ChessPiece rook, boolean castle, ChessPosition kingPosition) {
-        if (teamColor == TeamColor.WHITE) {
-            if (king.getPieceType() == KING && whiteKingHasNotMoved()) {
-                if (rook.getPieceType() == ROOK && whiteQueenSideRookHasNotMoved()) {
-                    castle = isLongCastleValidHelper2(teamColor, king, castle, kingPosition);
-                }
-            }
-        } else {
-            if (king.getPieceType() == KING && blackKingHasNotMoved()) {
-                if (rook.getPieceType() == ROOK && blackQueenSideRookHasNotMoved()) {
-                    castle = isLongCastleValidHelper2(teamColor, king, castle, kingPosition);
-                }
-            } 
+    /**
+     * Grants each castling right whose king and rook are still on their home squares,
+     * which is the best that can be assumed about a board set up by hand
+     */
+    private int castlingRightsFromBoard() {
+        int rights = 0;
+        if (isOnSquare(4, TeamColor.WHITE, KING)) {
+            rights |= isOnSquare(7, TeamColor.WHITE, ROOK) ? WHITE_SHORT_CASTLE : 0;
+            rights |= isOnSquare(0, TeamColor.WHITE, ROOK) ? WHITE_LONG_CASTLE : 0;
+        }
+        if (isOnSquare(60, TeamColor.BLACK, KING)) {
+            rights |= isOnSquare(63, TeamColor.BLACK, ROOK) ? BLACK_SHORT_CASTLE : 0;
+            rights |= isOnSquare(56, TeamColor.BLACK, ROOK) ? BLACK_LONG_CASTLE : 0;
         }
-        return castle;
+        return rights;
     }
 
-    private boolean isLongCastleValidHelper2(TeamColor teamColor, ChessPiece king, boolean castle, ChessPosition kingPosition) {
-        ChessPosition col2;
-        ChessPosition col3;
-        ChessPosition col4;
-        if (teamColor == TeamColor.WHITE) {
-            col2 = new ChessPosition(1, 2);
-            col3 = new ChessPosition(1, 3);
-            col4 = new ChessPosition(1, 4);
-        } else {
-            col2 = new ChessPosition(8, 2);
-            col3 = new ChessPosition(8, 3);
-            col4 = new ChessPosition(8, 4);
+    private boolean isOnSquare(int square, TeamColor color, ChessPiece.PieceType type) {
+        return currentBoard.pieceIndexAt(square) == ChessBoard.pieceIndex(color, type);
+    }
+
+    /**
+     * Converts the state of a game saved in the old format: every square a piece was moved
+     * from revokes the castling rights of that square, and a pawn's two-square advance as
+     * the last move sets the en passant square
+     */
+    private void upgradeLegacyState() {
+        if (movePositionCollection == null && lastMove == null && lastMovePiece == null) {
+            return;
+        }
+        if (movePositionCollection != null) {
+            for (ChessPosition position : movePositionCollection) {
+                castlingRights &= CASTLING_MASK[Bitboards.square(position)];
+            }
         }
-        ChessPiece col2Piece = currentBoard.getPiece(col2);
-        ChessPiece col3Piece = currentBoard.getPiece(col3);
-        ChessPiece col4Piece = currentBoard.getPiece(col4);
-        if (col2Piece == null && col3Piece == null && col4Piece == null) {
-            castle = isInCheckDuringCastle(teamColor, castle, kingPosition, king, col4, col3);
+        if (lastMove != null && lastMovePiece != null && lastMovePiece.getPieceType() == PAWN
+                && lastMove.getStartPosition() != null && lastMove.getEndPosition() != null) {
+            int from = Bitboards.square(lastMove.getStartPosition());
+            int to = Bitboards.square(lastMove.getEndPosition());
+            enPassantSquare = Math.abs(to - from) == 16 ? (from + to) / 2 : NO_SQUARE;
         }
-        return castle;
+        movePositionCollection = null;
+        lastMove = null;
+        lastMovePiece = null;
     }
 
+    public boolean isEnPassantValid(ChessPosition startPosition) {
+        upgradeLegacyState();
+        ChessPiece piece = currentBoard.getPiece(startPosition);
+        if (piece == null || piece.getPieceType() != PAWN || enPassantSquare == NO_SQUARE) {
+            return false;
+        }
+        int color = piece.getTeamColor().ordinal();
+        long target = Bitboards.bit(enPassantSquare) & (color == Bitboards.WHITE ? Bitboards.RANK_6 : Bitboards.RANK_3);
+        return (Bitboards.pawnAttacks(Bitboards.square(startPosition), color) & target) != 0;
+    }
+
+    /**
+     * @return whether the team whose turn it is may castle king side
+     */
+    public boolean isShortCastleValid() {
+        upgradeLegacyState();
+        return isPlayingTeam(currentTurn) && MoveGenerator.canCastle(currentBoard, currentTurn.ordinal(), castlingRights, true);
+    }
+
+    /**
+     * @return whether the team whose turn it is may castle queen side
+     */
+    public boolean isLongCastleValid() {
+        upgradeLegacyState();
+        return isPlayingTeam(currentTurn) && MoveGenerator.canCastle(currentBoard, currentTurn.ordinal(), castlingRights, false);
+    }
+
+    private boolean isPlayingTeam(TeamColor teamColor) {
+        return teamColor == TeamColor.WHITE || teamColor == TeamColor.BLACK;
+    }
+
+    /*
+     * A castling right is lost once the king or that side's rook leaves its home square,
+     * or the rook is captured there. Only the rights are kept, so whether a king has moved
+     * is no longer known once both its rooks have.
+     */
+    public boolean whiteHasCastlingRights() {
+        return hasCastlingRight(WHITE_SHORT_CASTLE | WHITE_LONG_CASTLE);
+    }
+    public boolean blackHasCastlingRights() {
+        return hasCastlingRight(BLACK_SHORT_CASTLE | BLACK_LONG_CASTLE);
+    }
+    public boolean whiteHasKingSideCastlingRight() {
+        return hasCastlingRight(WHITE_SHORT_CASTLE);
+    }
+    public boolean whiteHasQueenSideCastlingRight() {
+        return hasCastlingRight(WHITE_LONG_CASTLE);
+    }
+    public boolean blackHasKingSideCastlingRight() {
+        return hasCastlingRight(BLACK_SHORT_CASTLE);
+    }
+    public boolean blackHasQueenSideCastlingRight() {
+        return hasCastlingRight(BLACK_LONG_CASTLE);
+    }
+
+    /*
+     * The original names, kept for existing callers. A king or rook counts as unmoved
+     * while a castling right that depends on it remains.
+     */
     public boolean whiteKingHasNotMoved() {
-        return !movePositionCollection.contains(new ChessPosition(1,5));
+        return whiteHasCastlingRights();
     }
     public boolean blackKingHasNotMoved() {
-        return !movePositionCollection.contains(new ChessPosition(8,5));
+        return blackHasCastlingRights();
     }
     public boolean whiteKingSideRookHasNotMoved() {
-        return !movePositionCollection.contains(new ChessPosition(1,8));
+        return whiteHasKingSideCastlingRight();
     }
     public boolean whiteQueenSideRookHasNotMoved() {
-        return !movePositionCollection.contains(new ChessPosition(1,1));
+        return whiteHasQueenSideCastlingRight();
     }
     public boolean blackKingSideRookHasNotMoved() {
-        return !movePositionCollection.contains(new ChessPosition(8,8));
+        return blackHasKingSideCastlingRight();
     }
     public boolean blackQueenSideRookHasNotMoved() {
-        return !movePositionCollection.contains(new ChessPosition(8,1));
+        return blackHasQueenSideCastlingRight();
+    }
+
+    private boolean hasCastlingRight(int rights) {
+        upgradeLegacyState();
+        return (castlingRights & rights) != 0;
     }
-}
\ No newline at end of file
+
+    /**
+     * Everything applyMove changes that cannot be recomputed from the move itself.
+     * Records are reused from the stack so taking moves back does not allocate.
+     */
+    private static final class Undo {
+        private long positionKey;
+        private int move;
+        private int moved;
+        private int captured;
+        private int captureSquare;
+        private int castlingRights;
+        private int enPassantSquare;
+        private int halfmoveClock;
+        private TeamColor turn;
+    }
+}
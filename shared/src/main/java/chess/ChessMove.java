@@ -10,6 +10,32 @@ import java.util.Objects;
  */
 public class ChessMove {
 
+    /*
+     * Every from/to pair without a promotion, plus each promotion a pawn can make from
+     * the seventh or second rank, indexed by from * 64 + to. About 4,000 moves cover
+     * everything the move generator produces.
+     */
+    private static final ChessMove[] MOVES = new ChessMove[64 * 64];
+    private static final ChessMove[][] PROMOTIONS = new ChessMove[64 * 64][];
+
+    static {
+        ChessPiece.PieceType[] types = ChessPiece.PieceType.values();
+        for (int from = 0; from < 64; from++) {
+            for (int to = 0; to < 64; to++) {
+                MOVES[from * 64 + to] = new ChessMove(ChessPosition.of(from), ChessPosition.of(to), null);
+                boolean whitePromotion = from / 8 == 6 && to / 8 == 7;
+                boolean blackPromotion = from / 8 == 1 && to / 8 == 0;
+                if ((whitePromotion || blackPromotion) && Math.abs(from % 8 - to % 8) <= 1) {
+                    PROMOTIONS[from * 64 + to] = new ChessMove[types.length];
+                    for (ChessPiece.PieceType type : types) {
+                        PROMOTIONS[from * 64 + to][type.ordinal()] =
+                                new ChessMove(ChessPosition.of(from), ChessPosition.of(to), type);
+                    }
+                }
+            }
+        }
+    }
+
     private final ChessPosition startPosition;
     private final ChessPosition endPosition;
     private final ChessPiece.PieceType promotionPiece;
@@ -21,6 +47,56 @@ public class ChessMove {
         this.promotionPiece = promotionPiece;
     }
 
+    /**
+     * Gets the shared instance of a move between two squares of the board
+     *
+     * @return a cached move when both positions are on the board and any promotion is
+     * one a pawn could make, a new one otherwise
+     */
+    public static ChessMove of(ChessPosition startPosition, ChessPosition endPosition,
+                               ChessPiece.PieceType promotionPiece) {
+        if (!Bitboards.isOnBoard(startPosition) || !Bitboards.isOnBoard(endPosition)) {
+            return new ChessMove(startPosition, endPosition, promotionPiece);
+        }
+        ChessMove move = of(Bitboards.square(startPosition), Bitboards.square(endPosition), promotionPiece);
+        return move != null ? move : new ChessMove(startPosition, endPosition, promotionPiece);
+    }
+
+    /**
+     * @return the cached move between two squares numbered from 0 at a1, or null for a
+     * promotion no pawn can make
+     */
+    static ChessMove of(int from, int to, ChessPiece.PieceType promotionPiece) {
+        if (promotionPiece == null) {
+            return MOVES[from * 64 + to];
+        }
+        ChessMove[] promotions = PROMOTIONS[from * 64 + to];
+        return promotions == null ? null : promotions[promotionPiece.ordinal()];
+    }
+
+    /**
+     * Packs the move into the low 15 bits of an int: start square, end square and
+     * promotion piece, with squares numbered from 0 at a1 to 63 at h8
+     *
+     * @return the packed move, suitable for storing in a SMALLINT column
+     * @throws IllegalArgumentException if either position is off the board
+     */
+    public int encode() {
+        if (!Bitboards.isOnBoard(startPosition) || !Bitboards.isOnBoard(endPosition)) {
+            throw new IllegalArgumentException("Cannot encode a move off the board");
+        }
+        int from = Bitboards.square(startPosition);
+        int to = Bitboards.square(endPosition);
+        return promotionPiece == null ? Move.encode(from, to) : Move.encode(from, to, promotionPiece);
+    }
+
+    /**
+     * @return the move packed by {@link #encode()}
+     */
+    public static ChessMove decode(int encoded) {
+        return Move.toChessMove(encoded & 0x7FFF);
+    }
+
     /**
      * @return ChessPosition of starting location
      */
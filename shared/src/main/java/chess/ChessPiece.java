@@ -4,9 +4,6 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Objects;
 
-import static chess.ChessGame.TeamColor.BLACK;
-import static chess.ChessGame.TeamColor.WHITE;
-
 /**
  * Represents a single chess piece
  * <p>
@@ -15,6 +12,16 @@ import static chess.ChessGame.TeamColor.WHITE;
  */
 public class ChessPiece {
 
+    private static final ChessPiece[][] PIECES = new ChessPiece[2][PieceType.values().length];
+
+    static {
+        for (ChessGame.TeamColor color : new ChessGame.TeamColor[]{ChessGame.TeamColor.WHITE, ChessGame.TeamColor.BLACK}) {
+            for (PieceType type : PieceType.values()) {
+                PIECES[color.ordinal()][type.ordinal()] = new ChessPiece(color, type);
+            }
+        }
+    }
+
     private final ChessGame.TeamColor pieceColor;
     private final PieceType type;
 
@@ -23,6 +30,19 @@ public class ChessPiece {
         this.type = type;
     }
 
+    /**
+     * Gets the shared instance of a white or black piece. Pieces are immutable, so one
+     * instance per color and type serves every board.
+     *
+     * @return a cached piece, or a new one for any other color or a null type
+     */
+    public static ChessPiece of(ChessGame.TeamColor pieceColor, ChessPiece.PieceType type) {
+        if (type == null || (pieceColor != ChessGame.TeamColor.WHITE && pieceColor != ChessGame.TeamColor.BLACK)) {
+            return new ChessPiece(pieceColor, type);
+        }
+        return PIECES[pieceColor.ordinal()][type.ordinal()];
+    }
+
     @Override
     public boolean equals(Object o) {
         if (o == null || getClass() != o.getClass()) {
@@ -71,328 +91,57 @@ public class ChessPiece {
      * @return Collection of valid moves
      */
     public Collection<ChessMove> pieceMoves(ChessBoard board, ChessPosition myPosition) {
-        PieceType piece = getPieceType();
-        Collection<ChessMove> moves = new ArrayList<>();
-
-        if (piece == PieceType.PAWN) {
-            if (board.getPiece(myPosition).getTeamColor() == WHITE) {
-                getWhitePawnMove(board, myPosition, moves);
-            } else {
-                getBlackPawnMove(board, myPosition, moves);
-            }
-        }
-
-        else if (piece == PieceType.QUEEN) {
-            getHorizontalAndVerticalPieceMoves(board, myPosition, moves);
-            getDiagonalPieceMoves(board, myPosition, moves);
-        }
-
-        else if (piece == PieceType.KING) {
-            getKingMoves(board, myPosition, moves);
-        }
-
-        else if (piece == PieceType.BISHOP) {
-            getDiagonalPieceMoves(board, myPosition, moves);
-        }
-
-        else if (piece == PieceType.KNIGHT) {
-            getKnightMoves(board, myPosition, moves);
-        }
-        
-        else if (piece == PieceType.ROOK) {
-            getHorizontalAndVerticalPieceMoves(board, myPosition, moves);
-        }
-        return moves;
-    }
-
-    private void getKnightMoves(ChessBoard board, ChessPosition myPosition, Collection<ChessMove> moves) {
-        int row = myPosition.getRow();
-        int column = myPosition.getColumn();
-        row++;
-        row++;
-        column++;
-        if (row <= 8 && column <= 8) {
-            kingAndKnightOccupiedSpace(board, myPosition, moves, row, column);
-        }
-        row--;
-        column++;
-        if (row <= 8 && column <= 8) {
-            kingAndKnightOccupiedSpace(board, myPosition, moves, row, column);
-        }
-        row--;
-        row--;
-        if (row >= 1 && column <= 8) {
-            kingAndKnightOccupiedSpace(board, myPosition, moves, row, column);
-        }
-        row--;
-        column--;
-        if (row >= 1 && column <= 8) {
-            kingAndKnightOccupiedSpace(board, myPosition, moves, row, column);
-        }
-        column--;
-        column--;
-        if (row >= 1 && column >= 1) {
-            kingAndKnightOccupiedSpace(board, myPosition, moves, row, column);
-        }
-        row++;
-        column--;
-        if (row >= 1 && column >= 1) {
-            kingAndKnightOccupiedSpace(board, myPosition, moves, row, column);
-        }
-        row++;
-        row++;
-        if (row <= 8 && column >= 1) {
-            kingAndKnightOccupiedSpace(board, myPosition, moves, row, column);
-        }
-        row++;
-        column++;
-        if (row <= 8 && column >= 1) {
-            kingAndKnightOccupiedSpace(board, myPosition, moves, row, column);
-        }
-    }
-
-    private void getKingMoves(ChessBoard board, ChessPosition myPosition, Collection<ChessMove> moves) {
-        int row = myPosition.getRow();
-        int column = myPosition.getColumn();
-        row++;
-        if (row <= 8) {
-            kingAndKnightOccupiedSpace(board, myPosition, moves, row, column);
-        }
-        column++;
-        if (row <= 8 && column <= 8) {
-            kingAndKnightOccupiedSpace(board, myPosition, moves, row, column);
-        }
-        row--;
-        if (column <= 8) {
-            kingAndKnightOccupiedSpace(board, myPosition, moves, row, column);
-        }
-        row--;
-        if (row >= 1 && column <= 8) {
-            kingAndKnightOccupiedSpace(board, myPosition, moves, row, column);
-        }
-        column--;
-        if (row >= 1) {
-            kingAndKnightOccupiedSpace(board, myPosition, moves, row, column);
-        }
-        column--;
-        if (row >= 1 && column >= 1) {
-            kingAndKnightOccupiedSpace(board, myPosition, moves, row, column);
-        }
-        row++;
-        if (column >= 1) {
-            kingAndKnightOccupiedSpace(board, myPosition, moves, row, column);
-        }
-        row++;
-        if (row <= 8 && column >= 1) {
-            kingAndKnightOccupiedSpace(board, myPosition, moves, row, column);
-        }
-    }
-
-    private void getBlackPawnMove(ChessBoard board, ChessPosition myPosition, Collection<ChessMove> moves) {
-        int row = myPosition.getRow();
-        int column = myPosition.getColumn();
-        row--;
-        ChessPosition newPosition = new ChessPosition(row, column);
-        if (board.getPiece(newPosition) == null) {
-            blackPawnMove(myPosition, moves, row, newPosition);
-            if (row + 1 == 7) {
-                ChessPosition newPositionForward = new ChessPosition(row-1, column);
-                if (board.getPiece(newPositionForward) == null) {
-                    ChessMove move = new ChessMove(myPosition, newPositionForward, null);
-                    moves.add(move);
-                }
-            }
-        }
-        if (column < 8) {
-            ChessPosition newPositionLeft = new ChessPosition(row, column + 1);
-            if (board.getPiece(newPositionLeft) != null) {
-                if (board.getPiece(newPositionLeft).getTeamColor() == WHITE) {
-                    blackPawnMove(myPosition, moves, row, newPositionLeft);
-                }
-            }
-        }
-        if (column > 1) {
-            ChessPosition newPositionRight = new ChessPosition(row, column-1);
-            if (board.getPiece(newPositionRight) != null) {
-                if (board.getPiece(newPositionRight).getTeamColor() == WHITE) {
-                    blackPawnMove(myPosition, moves, row, newPositionRight);
-                }
-            }
-        }
-    }
-
-    private void getWhitePawnMove(ChessBoard board, ChessPosition myPosition, Collection<ChessMove> moves) {
-        int row = myPosition.getRow();
-        int column = myPosition.getColumn();
-        row++;
-        ChessPosition newPosition = new ChessPosition(row, column);
-        if (board.getPiece(newPosition) == null) {
-            whitePawnMove(myPosition, moves, row, newPosition);
-            if (row - 1 == 2) {
-                ChessPosition newPositionForward = new ChessPosition(row+1, column);
-                if (board.getPiece(newPositionForward) == null) {
-                    ChessMove move = new ChessMove(myPosition, newPositionForward, null);
-                    moves.add(move);
-                }
-            }
-        }
-        if (column > 1) {
-            ChessPosition newPositionLeft = new ChessPosition(row, column - 1);
-            if (board.getPiece(newPositionLeft) != null) {
-                if (board.getPiece(newPositionLeft).getTeamColor() == BLACK) {
-                    whitePawnMove(myPosition, moves, row, newPositionLeft);
-                }
-            }
-        }
-        if (column < 8) {
-            ChessPosition newPositionRight = new ChessPosition(row, column + 1);
-            if (board.getPiece(newPositionRight) != null) {
-                if (board.getPiece(newPositionRight).getTeamColor() == BLACK) {
-                    whitePawnMove(myPosition, moves, row, newPositionRight);
-                }
-            }
-        }
-    }
-
-    private boolean positionEmptyOrOccupiedByOpponentProcedure(ChessBoard board, 
-                                                               ChessPosition newPosition, 
-                                                               ChessPosition myPosition, 
-                                                               Collection<ChessMove> moves) {
-        if (board.getPiece(newPosition) != null) {
-            if (board.getPiece(newPosition).getTeamColor() != pieceColor) {
-                ChessMove move = new ChessMove(myPosition,newPosition,null);
-                moves.add(move);
-            }
-            return true;
+        IntMoveList moves = new IntMoveList(32);
+        int square = Bitboards.square(myPosition);
+        int color = pieceColor.ordinal();
+        long occupied = board.getOccupied();
+        long notOwn = ~board.getOccupancy(color);
+
+        switch (type) {
+            case PAWN -> getPawnMoves(board, square, color, moves);
+            case KING -> addMoves(square, Bitboards.kingAttacks(square) & notOwn, moves);
+            case KNIGHT -> addMoves(square, Bitboards.knightAttacks(square) & notOwn, moves);
+            case BISHOP -> addMoves(square, Bitboards.bishopAttacks(square, occupied) & notOwn, moves);
+            case ROOK -> addMoves(square, Bitboards.rookAttacks(square, occupied) & notOwn, moves);
+            case QUEEN -> addMoves(square, Bitboards.queenAttacks(square, occupied) & notOwn, moves);
+        }
+        Collection<ChessMove> pieceMoves = new ArrayList<>(moves.size());
+        moves.addTo(pieceMoves);
+        return pieceMoves;
+    }
+
+    private void getPawnMoves(ChessBoard board, int square, int color, IntMoveList moves) {
+        long empty = ~board.getOccupied();
+        long pawn = Bitboards.bit(square);
+        long targets;
+        if (color == Bitboards.WHITE) {
+            long single = (pawn << 8) & empty;
+            long dbl = ((single & (Bitboards.RANK_2 << 8)) << 8) & empty;
+            targets = single | dbl;
         } else {
-            ChessMove move = new ChessMove(myPosition,newPosition,null);
-            moves.add(move);
+            long single = (pawn >>> 8) & empty;
+            long dbl = ((single & (Bitboards.RANK_7 >>> 8)) >>> 8) & empty;
+            targets = single | dbl;
         }
-        return false;
-    }
+        targets |= Bitboards.pawnAttacks(square, color) & board.getOccupancy(1 - color);
 
-    private void getHorizontalAndVerticalPieceMoves(ChessBoard board, ChessPosition myPosition, Collection<ChessMove> moves) {
-        int row = myPosition.getRow();
-        int column = myPosition.getColumn();
-        int counter1 = 0;
-        int path1 = myPosition.getRow();
-        ChessPosition newPosition;
-        while (counter1 < 2) {
-            while (path1 < 8) {
-                path1++;
-                if (counter1 == 0) {
-                    newPosition = new ChessPosition(path1, column);
-                } else {
-                    newPosition = new ChessPosition(row, path1);
-                }
-                if (positionEmptyOrOccupiedByOpponentProcedure(board, newPosition, myPosition, moves)) {
-                    break;
-                }
-            }
-            counter1++;
-            path1 = myPosition.getColumn();
-        }
-        int counter2 = 0;
-        int path2 = myPosition.getRow();
-        while (counter2 < 2) {
-            while (path2 > 1) {
-                path2--;
-                if (counter2 == 0) {
-                    newPosition = new ChessPosition(path2, column);
-                } else {
-                    newPosition = new ChessPosition(row, path2);
-                }
-                if (positionEmptyOrOccupiedByOpponentProcedure(board, newPosition, myPosition, moves)) {
-                    break;
-                }
-            }
-            counter2++;
-            path2 = myPosition.getColumn();
+        long promotions = targets & (Bitboards.RANK_1 | Bitboards.RANK_8);
+        addMoves(square, targets & ~promotions, moves);
+        for (long b = promotions; b != 0; b &= b - 1) {
+            pawnPromotionMoves(square, Long.numberOfTrailingZeros(b), moves);
         }
     }
 
-    private void getDiagonalPieceMoves(ChessBoard board, ChessPosition myPosition, Collection<ChessMove> moves) {
-        int row1 = myPosition.getRow();
-        int column1 = myPosition.getColumn();
-        while (row1 < 8 && column1 < 8) {
-            row1++;
-            column1++;
-            ChessPosition newPosition = new ChessPosition(row1, column1);
-            if (positionEmptyOrOccupiedByOpponentProcedure(board, newPosition, myPosition, moves)) {
-                break;
-            }
-        }
-        int row2 = myPosition.getRow();
-        int column2 = myPosition.getColumn();
-        while (row2 > 1 && column2 < 8) {
-            row2--;
-            column2++;
-            ChessPosition newPosition = new ChessPosition(row2, column2);
-            if (positionEmptyOrOccupiedByOpponentProcedure(board, newPosition, myPosition, moves)) {
-                break;
-            }
-        }
-        int row3 = myPosition.getRow();
-        int column3 = myPosition.getColumn();
-        while (row3 > 1 && column3 > 1) {
-            row3--;
-            column3--;
-            ChessPosition newPosition = new ChessPosition(row3, column3);
-            if (positionEmptyOrOccupiedByOpponentProcedure(board, newPosition, myPosition, moves)) {
-                break;
-            }
-        }
-        int row4 = myPosition.getRow();
-        int column4 = myPosition.getColumn();
-        while (row4 < 8 && column4 > 1) {
-            row4++;
-            column4--;
-            ChessPosition newPosition = new ChessPosition(row4, column4);
-            if (positionEmptyOrOccupiedByOpponentProcedure(board, newPosition, myPosition, moves)) {
-                break;
-            }
+    private void addMoves(int square, long targets, IntMoveList moves) {
+        for (long b = targets; b != 0; b &= b - 1) {
+            moves.add(Move.encode(square, Long.numberOfTrailingZeros(b)));
         }
     }
 
-    private void whitePawnMove(ChessPosition myPosition, Collection<ChessMove> moves, int row, ChessPosition newPosition) {
-        if (row == 8) {
-            pawnPromotionMoves(myPosition, moves, newPosition);
-        } else {
-            ChessMove move = new ChessMove(myPosition, newPosition, null);
-            moves.add(move);
-        }
-    }
-
-    private void blackPawnMove(ChessPosition myPosition, Collection<ChessMove> moves, int row, ChessPosition newPosition) {
-        if (row == 1) {
-            pawnPromotionMoves(myPosition, moves, newPosition);
-        } else {
-            ChessMove move = new ChessMove(myPosition, newPosition, null);
-            moves.add(move);
-        }
-    }
-
-    private void pawnPromotionMoves(ChessPosition myPosition, Collection<ChessMove> moves, ChessPosition newPosition) {
-        ChessMove promotion1 = new ChessMove(myPosition, newPosition, PieceType.QUEEN);
-        moves.add(promotion1);
-        ChessMove promotion2 = new ChessMove(myPosition, newPosition, PieceType.BISHOP);
-        moves.add(promotion2);
-        ChessMove promotion3 = new ChessMove(myPosition, newPosition, PieceType.KNIGHT);
-        moves.add(promotion3);
-        ChessMove promotion4 = new ChessMove(myPosition, newPosition, PieceType.ROOK);
-        moves.add(promotion4);
-    }
-
-    private void kingAndKnightOccupiedSpace(ChessBoard board, ChessPosition myPosition, Collection<ChessMove> moves, int row, int column) {
-        ChessPosition newPosition = new ChessPosition(row, column);
-        if (board.getPiece(newPosition) == null) {
-            ChessMove move = new ChessMove(myPosition, newPosition, null);
-            moves.add(move);
-        } else {
-            if (board.getPiece(newPosition).getTeamColor() != pieceColor) {
-                ChessMove move = new ChessMove(myPosition, newPosition, null);
-                moves.add(move);
-            }
-        }
+    private void pawnPromotionMoves(int square, int newSquare, IntMoveList moves) {
+        moves.add(Move.encode(square, newSquare, PieceType.QUEEN));
+        moves.add(Move.encode(square, newSquare, PieceType.BISHOP));
+        moves.add(Move.encode(square, newSquare, PieceType.KNIGHT));
+        moves.add(Move.encode(square, newSquare, PieceType.ROOK));
     }
 }
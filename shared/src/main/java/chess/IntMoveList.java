@@ -0,0 +1,76 @@
+package chess;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * A growable list of moves packed by {@link Move}. Move generation fills one of these
+ * instead of a collection of ChessMove objects, and a list kept per search ply is
+ * cleared and refilled without allocating.
+ */
+final class IntMoveList {
+
+    /*
+     * No legal chess position has more than 218 moves.
+     */
+    private static final int DEFAULT_CAPACITY = 256;
+
+    private int[] moves;
+    private int size;
+
+    IntMoveList() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    IntMoveList(int capacity) {
+        moves = new int[Math.max(capacity, 1)];
+    }
+
+    void add(int move) {
+        if (size == moves.length) {
+            moves = Arrays.copyOf(moves, size * 2);
+        }
+        moves[size++] = move;
+    }
+
+    int get(int index) {
+        if (index >= size) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        return moves[index];
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    void clear() {
+        size = 0;
+    }
+
+    /**
+     * @return the listed move with the same squares and promotion as the given one, or
+     * -1 if there is none
+     */
+    int find(int move) {
+        for (int i = 0; i < size; i++) {
+            if (Move.sameMove(moves[i], move)) {
+                return moves[i];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Adds every move in the list to a collection as a ChessMove
+     */
+    void addTo(Collection<ChessMove> collection) {
+        for (int i = 0; i < size; i++) {
+            collection.add(Move.toChessMove(moves[i]));
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package chess;
+
+/**
+ * Packs a move into an int so move lists can be plain int arrays. Bits 0-5 hold the
+ * from square, bits 6-11 the to square, bits 12-14 the promotion piece type (its
+ * ordinal plus one, 0 for none) and bits 15-17 the flags below.
+ */
+final class Move {
+
+    static final int DOUBLE_PUSH = 1;
+    static final int EN_PASSANT = 2;
+    static final int CASTLE = 4;
+
+    private static final int PROMOTION_SHIFT = 12;
+    private static final int FLAGS_SHIFT = 15;
+    private static final int SQUARES_AND_PROMOTION = (1 << FLAGS_SHIFT) - 1;
+    private static final ChessPiece.PieceType[] PIECE_TYPES = ChessPiece.PieceType.values();
+
+    private Move() {}
+
+    static int encode(int from, int to) {
+        return from | to << 6;
+    }
+
+    static int encode(int from, int to, int flags) {
+        return from | to << 6 | flags << FLAGS_SHIFT;
+    }
+
+    static int encode(int from, int to, ChessPiece.PieceType promotion) {
+        return from | to << 6 | (promotion.ordinal() + 1) << PROMOTION_SHIFT;
+    }
+
+    static int from(int move) {
+        return move & 63;
+    }
+
+    static int to(int move) {
+        return (move >>> 6) & 63;
+    }
+
+    /**
+     * @return the piece type a pawn promotes to, or null if the move is not a promotion
+     */
+    static ChessPiece.PieceType promotion(int move) {
+        int promotion = (move >>> PROMOTION_SHIFT) & 7;
+        return promotion == 0 ? null : PIECE_TYPES[promotion - 1];
+    }
+
+    static boolean hasFlag(int move, int flag) {
+        return ((move >>> FLAGS_SHIFT) & flag) != 0;
+    }
+
+    /**
+     * @return whether two encoded moves have the same squares and promotion, whatever
+     * flags either carries
+     */
+    static boolean sameMove(int move, int other) {
+        return ((move ^ other) & SQUARES_AND_PROMOTION) == 0;
+    }
+
+    static ChessMove toChessMove(int move) {
+        return ChessMove.of(from(move), to(move), promotion(move));
+    }
+}
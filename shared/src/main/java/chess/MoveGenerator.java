@@ -0,0 +1,213 @@
+package chess;
+
+import static chess.ChessPiece.PieceType.*;
+
+/**
+ * Generates the legal moves of one side in a single pass. Rather than playing every
+ * pseudo-legal move and asking whether the king was left in check, it finds the pieces
+ * giving check and the pieces pinned to the king first, then masks each piece's targets:
+ * <ul>
+ *     <li>in double check only the king may move</li>
+ *     <li>in single check other pieces must capture the checker or block between it and the king</li>
+ *     <li>a pinned piece may only move along the line through its king and the pinner</li>
+ *     <li>the king may not step onto a square the opponent attacks once the king has left its square</li>
+ * </ul>
+ * En passant is the one move checked by removing both pawns, since it can uncover a
+ * rank attack on the king that no pin test sees.
+ */
+final class MoveGenerator {
+
+    private static final long ALL_SQUARES = -1L;
+
+    private MoveGenerator() {}
+
+    /**
+     * Adds the legal moves of the pieces of one color that stand on the given squares,
+     * encoded by {@link Move}
+     *
+     * @param fromMask squares whose pieces to generate for, -1 for the whole side
+     */
+    static void generate(ChessBoard board, int color, int castlingRights, int enPassantSquare,
+                         long fromMask, IntMoveList moves) {
+        int them = 1 - color;
+        long own = board.getOccupancy(color);
+        long enemy = board.getOccupancy(them);
+        long occupied = own | enemy;
+        long king = board.getBitboard(color, KING);
+
+        int kingSquare = -1;
+        long checkMask = ALL_SQUARES;
+        long pinned = 0L;
+        if (king != 0) {
+            kingSquare = Long.numberOfTrailingZeros(king);
+            long checkers = Bitboards.attackersTo(board, kingSquare, them, occupied);
+            if ((king & fromMask) != 0) {
+                // Sliders see through the king's current square, so it cannot retreat along a checking ray
+                long withoutKing = occupied & ~king;
+                for (long b = Bitboards.kingAttacks(kingSquare) & ~own; b != 0; b &= b - 1) {
+                    int to = Long.numberOfTrailingZeros(b);
+                    if (!Bitboards.isAttacked(board, to, them, withoutKing)) {
+                        moves.add(Move.encode(kingSquare, to));
+                    }
+                }
+                if (checkers == 0) {
+                    addCastleMoves(board, color, castlingRights, kingSquare, moves);
+                }
+            }
+            if (Long.bitCount(checkers) > 1) {
+                return;
+            }
+            if (checkers != 0) {
+                checkMask = checkers | Bitboards.between(kingSquare, Long.numberOfTrailingZeros(checkers));
+            }
+            pinned = pinnedPieces(board, kingSquare, color, own, enemy, occupied);
+        }
+
+        long targetMask = ~own & checkMask;
+        for (long b = board.getBitboard(color, KNIGHT) & ~pinned & fromMask; b != 0; b &= b - 1) {
+            int from = Long.numberOfTrailingZeros(b);
+            addMoves(from, Bitboards.knightAttacks(from) & targetMask, moves);
+        }
+        long diagonal = board.getBitboard(color, BISHOP) | board.getBitboard(color, QUEEN);
+        for (long b = diagonal & fromMask; b != 0; b &= b - 1) {
+            int from = Long.numberOfTrailingZeros(b);
+            long targets = Bitboards.bishopAttacks(from, occupied) & targetMask;
+            addMoves(from, targets & pinRay(pinned, kingSquare, from), moves);
+        }
+        long straight = board.getBitboard(color, ROOK) | board.getBitboard(color, QUEEN);
+        for (long b = straight & fromMask; b != 0; b &= b - 1) {
+            int from = Long.numberOfTrailingZeros(b);
+            long targets = Bitboards.rookAttacks(from, occupied) & targetMask;
+            addMoves(from, targets & pinRay(pinned, kingSquare, from), moves);
+        }
+        for (long b = board.getBitboard(color, PAWN) & fromMask; b != 0; b &= b - 1) {
+            int from = Long.numberOfTrailingZeros(b);
+            long allowed = checkMask & pinRay(pinned, kingSquare, from);
+            addPawnMoves(color, from, occupied, enemy, allowed, moves);
+            if (enPassantSquare != ChessGame.NO_SQUARE) {
+                addEnPassant(board, color, from, enPassantSquare, kingSquare, occupied, moves);
+            }
+        }
+    }
+
+    /**
+     * @return whether the given side may castle on the given side of the board: it still
+     * has the right, king and rook are in place, the squares between them are empty, and
+     * the king is not in check and does not pass through or land on an attacked square
+     */
+    static boolean canCastle(ChessBoard board, int color, int castlingRights, boolean kingSide) {
+        int right;
+        if (color == Bitboards.WHITE) {
+            right = kingSide ? ChessGame.WHITE_SHORT_CASTLE : ChessGame.WHITE_LONG_CASTLE;
+        } else {
+            right = kingSide ? ChessGame.BLACK_SHORT_CASTLE : ChessGame.BLACK_LONG_CASTLE;
+        }
+        if ((castlingRights & right) == 0) {
+            return false;
+        }
+        int shift = color == Bitboards.WHITE ? 0 : 56;
+        long king = Bitboards.bit(4 + shift);
+        long rook = Bitboards.bit((kingSide ? 7 : 0) + shift);
+        if ((board.getBitboard(color, KING) & king) == 0 || (board.getBitboard(color, ROOK) & rook) == 0) {
+            return false;
+        }
+        long between = (kingSide ? 0x60L : 0x0EL) << shift;
+        if ((board.getOccupied() & between) != 0) {
+            return false;
+        }
+        int step = kingSide ? 1 : -1;
+        long occupied = board.getOccupied();
+        for (int square = 4 + shift, i = 0; i < 3; square += step, i++) {
+            if (Bitboards.isAttacked(board, square, 1 - color, occupied)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void addCastleMoves(ChessBoard board, int color, int castlingRights, int kingSquare,
+                                       IntMoveList moves) {
+        if (canCastle(board, color, castlingRights, true)) {
+            moves.add(Move.encode(kingSquare, kingSquare + 2, Move.CASTLE));
+        }
+        if (canCastle(board, color, castlingRights, false)) {
+            moves.add(Move.encode(kingSquare, kingSquare - 2, Move.CASTLE));
+        }
+    }
+
+    /**
+     * Looks along every line from the king through friendly pieces to an enemy slider
+     * moving on that line. A friendly piece alone between them is pinned.
+     */
+    private static long pinnedPieces(ChessBoard board, int kingSquare, int color, long own, long enemy,
+                                     long occupied) {
+        int them = 1 - color;
+        long diagonal = board.getBitboard(them, BISHOP) | board.getBitboard(them, QUEEN);
+        long straight = board.getBitboard(them, ROOK) | board.getBitboard(them, QUEEN);
+        long snipers = (Bitboards.bishopAttacks(kingSquare, enemy) & diagonal)
+                | (Bitboards.rookAttacks(kingSquare, enemy) & straight);
+        long pinned = 0L;
+        for (long b = snipers; b != 0; b &= b - 1) {
+            long blockers = Bitboards.between(kingSquare, Long.numberOfTrailingZeros(b)) & occupied;
+            if (Long.bitCount(blockers) == 1 && (blockers & own) != 0) {
+                pinned |= blockers;
+            }
+        }
+        return pinned;
+    }
+
+    private static long pinRay(long pinned, int kingSquare, int from) {
+        return (pinned & Bitboards.bit(from)) == 0 ? ALL_SQUARES : Bitboards.line(kingSquare, from);
+    }
+
+    private static void addPawnMoves(int color, int from, long occupied, long enemy,
+                                     long allowed, IntMoveList moves) {
+        long pawn = Bitboards.bit(from);
+        long targets;
+        if (color == Bitboards.WHITE) {
+            long single = (pawn << 8) & ~occupied;
+            targets = single | (((single & Bitboards.RANK_3) << 8) & ~occupied);
+        } else {
+            long single = (pawn >>> 8) & ~occupied;
+            targets = single | (((single & Bitboards.RANK_6) >>> 8) & ~occupied);
+        }
+        targets |= Bitboards.pawnAttacks(from, color) & enemy;
+        targets &= allowed;
+
+        long promotions = targets & (Bitboards.RANK_1 | Bitboards.RANK_8);
+        for (long b = targets & ~promotions; b != 0; b &= b - 1) {
+            int to = Long.numberOfTrailingZeros(b);
+            moves.add(Math.abs(to - from) == 16 ? Move.encode(from, to, Move.DOUBLE_PUSH) : Move.encode(from, to));
+        }
+        for (long b = promotions; b != 0; b &= b - 1) {
+            int to = Long.numberOfTrailingZeros(b);
+            moves.add(Move.encode(from, to, QUEEN));
+            moves.add(Move.encode(from, to, BISHOP));
+            moves.add(Move.encode(from, to, KNIGHT));
+            moves.add(Move.encode(from, to, ROOK));
+        }
+    }
+
+    private static void addEnPassant(ChessBoard board, int color, int from, int enPassantSquare, int kingSquare,
+                                     long occupied, IntMoveList moves) {
+        long target = Bitboards.bit(enPassantSquare) & (color == Bitboards.WHITE ? Bitboards.RANK_6 : Bitboards.RANK_3);
+        if ((Bitboards.pawnAttacks(from, color) & target) == 0) {
+            return;
+        }
+        if (kingSquare >= 0) {
+            int captured = color == Bitboards.WHITE ? enPassantSquare - 8 : enPassantSquare + 8;
+            long after = (occupied & ~Bitboards.bit(from) & ~Bitboards.bit(captured)) | target;
+            long attackers = Bitboards.attackersTo(board, kingSquare, 1 - color, after) & ~Bitboards.bit(captured);
+            if (attackers != 0) {
+                return;
+            }
+        }
+        moves.add(Move.encode(from, enPassantSquare, Move.EN_PASSANT));
+    }
+
+    private static void addMoves(int from, long targets, IntMoveList moves) {
+        for (long b = targets; b != 0; b &= b - 1) {
+            moves.add(Move.encode(from, Long.numberOfTrailingZeros(b)));
+        }
+    }
+}
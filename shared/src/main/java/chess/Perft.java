@@ -0,0 +1,114 @@
+package chess;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Counts the leaf nodes of the legal move tree to a fixed depth. The totals for well known
+ * positions are published, so this catches move generator regressions, and the run time
+ * doubles as a throughput benchmark.
+ * <p>
+ * Usage: {@code java chess.Perft <depth> [divide] [fen]}, starting from the initial position
+ * when no FEN record is given
+ */
+public final class Perft {
+
+    private Perft() {}
+
+    public static void main(String[] args) {
+        int depth = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+        boolean divide = args.length > 1 && args[1].equals("divide");
+        int fenStart = divide ? 2 : 1;
+        ChessGame game = args.length > fenStart
+                ? ChessGame.fromFen(String.join(" ", Arrays.copyOfRange(args, fenStart, args.length)))
+                : new ChessGame();
+
+        long start = System.nanoTime();
+        long nodes;
+        if (divide) {
+            nodes = 0;
+            for (Map.Entry<ChessMove, Long> entry : divide(game, depth).entrySet()) {
+                System.out.printf("%s: %d%n", toCoordinates(entry.getKey()), entry.getValue());
+                nodes += entry.getValue();
+            }
+        } else {
+            nodes = perft(game, depth);
+        }
+        long elapsed = Math.max(System.nanoTime() - start, 1);
+
+        System.out.printf("depth %d: %d nodes in %.3f s (%,d nodes/s)%n",
+                depth, nodes, elapsed / 1e9, nodes * 1_000_000_000L / elapsed);
+    }
+
+    /**
+     * @return the number of legal move sequences of exactly the given length from the
+     * current position of the game, which is left unchanged
+     */
+    public static long perft(ChessGame game, int depth) {
+        return perft(game, depth, newMoveLists(depth));
+    }
+
+    /**
+     * @return the perft count below each legal move of the side to move, in generation order
+     */
+    public static Map<ChessMove, Long> divide(ChessGame game, int depth) {
+        Map<ChessMove, Long> counts = new LinkedHashMap<>();
+        IntMoveList[] moveLists = newMoveLists(depth);
+        IntMoveList moves = new IntMoveList();
+        game.legalMoves(moves);
+        for (int i = 0; i < moves.size(); i++) {
+            game.applyMove(moves.get(i));
+            counts.put(Move.toChessMove(moves.get(i)), perft(game, depth - 1, moveLists));
+            game.unmakeMove();
+        }
+        return counts;
+    }
+
+    /*
+     * Each ply fills its own list, so a whole search allocates nothing after startup.
+     */
+    private static long perft(ChessGame game, int depth, IntMoveList[] moveLists) {
+        if (depth == 0) {
+            return 1;
+        }
+        IntMoveList moves = moveLists[depth - 1];
+        game.legalMoves(moves);
+        if (depth == 1) {
+            return moves.size();
+        }
+        long nodes = 0;
+        for (int i = 0; i < moves.size(); i++) {
+            game.applyMove(moves.get(i));
+            nodes += perft(game, depth - 1, moveLists);
+            game.unmakeMove();
+        }
+        return nodes;
+    }
+
+    private static IntMoveList[] newMoveLists(int depth) {
+        IntMoveList[] moveLists = new IntMoveList[Math.max(depth, 0)];
+        for (int i = 0; i < moveLists.length; i++) {
+            moveLists[i] = new IntMoveList();
+        }
+        return moveLists;
+    }
+
+    private static String toCoordinates(ChessMove move) {
+        String coordinates = toCoordinates(move.getStartPosition()) + toCoordinates(move.getEndPosition());
+        if (move.getPromotionPiece() == null) {
+            return coordinates;
+        }
+        return coordinates + switch (move.getPromotionPiece()) {
+            case QUEEN -> "q";
+            case ROOK -> "r";
+            case BISHOP -> "b";
+            case KNIGHT -> "n";
+            default -> "";
+        };
+    }
+
+    private static String toCoordinates(ChessPosition position) {
+        return String.valueOf((char) ('a' + position.getColumn() - 1)) + position.getRow();
+    }
+}
@@ -0,0 +1,132 @@
+package chess;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Fixed-size binary form of a game position for storage and transfer. Every position
+ * takes {@link #SIZE} bytes:
+ * <ul>
+ *     <li>bytes 0-7: occupancy bitboard, bit 0 = a1</li>
+ *     <li>bytes 8-23: one nibble per occupied square in ascending square order, holding
+ *     the piece as color * 6 + piece type ordinal, two to a byte, low nibble first</li>
+ *     <li>byte 24: castling rights in bits 0-3, team turn ordinal in bits 4-5</li>
+ *     <li>byte 25: en passant square, or 0xFF for none</li>
+ *     <li>bytes 26-27: halfmove clock</li>
+ *     <li>bytes 28-31: fullmove number</li>
+ * </ul>
+ * Multi-byte values are written in the buffer's byte order. Like FEN, the encoding holds
+ * the position only, not the moves that led to it.
+ */
+public final class PositionCodec {
+
+    public static final int SIZE = 32;
+
+    private static final int MAX_PIECES = 32;
+    private static final int NO_EN_PASSANT = 0xFF;
+    private static final ChessGame.TeamColor[] TEAM_COLORS = ChessGame.TeamColor.values();
+
+    private PositionCodec() {}
+
+    /**
+     * Writes a game's position at the buffer's current position and advances it by SIZE
+     *
+     * @throws IllegalArgumentException if the board holds more than 32 pieces
+     * @throws java.nio.BufferOverflowException if fewer than SIZE bytes remain
+     */
+    public static void encode(ChessGame game, ByteBuffer buffer) {
+        ChessBoard board = game.getBoard();
+        long occupied = board.getOccupied();
+        if (Long.bitCount(occupied) > MAX_PIECES) {
+            throw new IllegalArgumentException("Cannot encode a board with more than 32 pieces");
+        }
+        buffer.putLong(occupied);
+        int written = 0;
+        int pieces = 0;
+        int packed = 0;
+        for (long b = occupied; b != 0; b &= b - 1) {
+            int piece = board.pieceIndexAt(Long.numberOfTrailingZeros(b));
+            if ((pieces++ & 1) == 0) {
+                packed = piece;
+            } else {
+                buffer.put((byte) (packed | piece << 4));
+                written++;
+            }
+        }
+        if ((pieces & 1) != 0) {
+            buffer.put((byte) packed);
+            written++;
+        }
+        for (; written < MAX_PIECES / 2; written++) {
+            buffer.put((byte) 0);
+        }
+        buffer.put((byte) (game.getCastlingRights() | game.getTeamTurn().ordinal() << 4));
+        int enPassantSquare = game.getEnPassantSquare();
+        buffer.put((byte) (enPassantSquare == ChessGame.NO_SQUARE ? NO_EN_PASSANT : enPassantSquare));
+        buffer.putShort((short) Math.min(game.getHalfmoveClock(), 0xFFFF));
+        buffer.putInt(game.getFullmoveNumber());
+    }
+
+    /**
+     * @return a new array holding the encoded position of the game
+     */
+    public static byte[] encode(ChessGame game) {
+        byte[] bytes = new byte[SIZE];
+        encode(game, ByteBuffer.wrap(bytes));
+        return bytes;
+    }
+
+    /**
+     * Reads a position written by encode at the buffer's current position and advances it
+     * by SIZE
+     *
+     * @return a game in the decoded position with no moves to take back
+     * @throws IllegalArgumentException if the bytes do not describe a position
+     * @throws java.nio.BufferUnderflowException if fewer than SIZE bytes remain
+     */
+    public static ChessGame decode(ByteBuffer buffer) {
+        long occupied = buffer.getLong();
+        if (Long.bitCount(occupied) > MAX_PIECES) {
+            throw new IllegalArgumentException("Invalid encoded position: more than 32 pieces");
+        }
+        ChessBoard board = new ChessBoard();
+        int pieces = 0;
+        int packed = 0;
+        for (long b = occupied; b != 0; b &= b - 1) {
+            int piece;
+            if ((pieces & 1) == 0) {
+                packed = buffer.get();
+                piece = packed & 0xF;
+            } else {
+                piece = (packed >>> 4) & 0xF;
+            }
+            if (piece >= 12) {
+                throw new IllegalArgumentException("Invalid encoded position: unknown piece " + piece);
+            }
+            board.placePiece(Long.numberOfTrailingZeros(b), piece);
+            pieces++;
+        }
+        buffer.position(buffer.position() + MAX_PIECES / 2 - (pieces + 1) / 2);
+
+        int state = buffer.get() & 0xFF;
+        int turn = state >>> 4;
+        int enPassantSquare = buffer.get() & 0xFF;
+        if (turn >= TEAM_COLORS.length || (enPassantSquare != NO_EN_PASSANT && enPassantSquare >= 64)) {
+            throw new IllegalArgumentException("Invalid encoded position: bad game state");
+        }
+        int halfmoveClock = buffer.getShort() & 0xFFFF;
+        int fullmoveNumber = buffer.getInt();
+
+        ChessGame game = new ChessGame();
+        game.restorePosition(board, TEAM_COLORS[turn], state & ChessGame.ALL_CASTLING_RIGHTS,
+                enPassantSquare == NO_EN_PASSANT ? ChessGame.NO_SQUARE : enPassantSquare,
+                halfmoveClock, Math.max(fullmoveNumber, 1));
+        return game;
+    }
+
+    /**
+     * @return the game whose position is encoded in the array
+     */
+    public static ChessGame decode(byte[] bytes) {
+        return decode(ByteBuffer.wrap(bytes));
+    }
+}
@@ -0,0 +1,61 @@
+package chess;
+
+import java.util.Random;
+
+/**
+ * Random keys for Zobrist hashing. A position key is the XOR of the key for every piece
+ * on its square, the side to move, the castling rights and the en passant file, so a move
+ * only has to XOR out what it removes and XOR in what it adds.
+ * <p>
+ * The keys come from a fixed seed so that a position hashes to the same value in every
+ * JVM, which lets keys be stored or shared between the server and clients.
+ */
+final class Zobrist {
+
+    private static final long[][] PIECE_SQUARE = new long[12][64];
+    private static final long[] CASTLING = new long[16];
+    private static final long[] EN_PASSANT_FILE = new long[8];
+    private static final long BLACK_TO_MOVE;
+
+    static {
+        Random random = new Random(0x5EED_C4E55L);
+        for (long[] squares : PIECE_SQUARE) {
+            for (int square = 0; square < 64; square++) {
+                squares[square] = random.nextLong();
+            }
+        }
+        for (int file = 0; file < 8; file++) {
+            EN_PASSANT_FILE[file] = random.nextLong();
+        }
+        long[] rights = new long[4];
+        for (int i = 0; i < rights.length; i++) {
+            rights[i] = random.nextLong();
+        }
+        for (int mask = 0; mask < CASTLING.length; mask++) {
+            for (int i = 0; i < rights.length; i++) {
+                if ((mask & (1 << i)) != 0) {
+                    CASTLING[mask] ^= rights[i];
+                }
+            }
+        }
+        BLACK_TO_MOVE = random.nextLong();
+    }
+
+    private Zobrist() {}
+
+    static long piece(int pieceIndex, int square) {
+        return PIECE_SQUARE[pieceIndex][square];
+    }
+
+    static long castling(int castlingRights) {
+        return CASTLING[castlingRights];
+    }
+
+    static long enPassant(int square) {
+        return EN_PASSANT_FILE[square & 7];
+    }
+
+    static long blackToMove() {
+        return BLACK_TO_MOVE;
+    }
+}
@@ -0,0 +1,36 @@
+package websocket.commands;
+
+import java.util.Objects;
+
+/**
+ * A CONNECT command that can ask for MOVE_MADE messages after each move in place of a
+ * full LOAD_GAME. A plain UserGameCommand connects without them.
+ */
+public class ConnectCommand extends UserGameCommand {
+
+    private final boolean moveUpdates;
+
+    public ConnectCommand(String authToken, Integer gameID, boolean moveUpdates) {
+        super(CommandType.CONNECT, authToken, gameID);
+        this.moveUpdates = moveUpdates;
+    }
+
+    public boolean wantsMoveUpdates() { return this.moveUpdates; }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        if (!super.equals(o)) {
+            return false;
+        }
+        ConnectCommand that = (ConnectCommand) o;
+        return moveUpdates == that.moveUpdates;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(super.hashCode(), moveUpdates);
+    }
+}
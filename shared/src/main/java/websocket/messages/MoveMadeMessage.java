@@ -0,0 +1,36 @@
+package websocket.messages;
+
+import chess.ChessMove;
+
+/**
+ * Tells a client that opted in with {@link websocket.commands.ConnectCommand} that a move
+ * was made, instead of sending the whole game again. The client plays the move on its own
+ * copy of the game. sequence is the game's ply after the move; a client whose game is not
+ * exactly one ply behind has missed something and should connect again for a LOAD_GAME.
+ */
+public class MoveMadeMessage extends ServerMessage {
+
+    public enum GameStatus {
+        IN_PROGRESS,
+        CHECK,
+        CHECKMATE,
+        STALEMATE
+    }
+
+    private final ChessMove move;
+    private final int sequence;
+    private final GameStatus status;
+
+    public MoveMadeMessage(ChessMove move, int sequence, GameStatus status) {
+        super(ServerMessageType.MOVE_MADE);
+        this.move = move;
+        this.sequence = sequence;
+        this.status = status;
+    }
+
+    public ChessMove getMove() { return this.move; }
+
+    public int getSequence() { return this.sequence; }
+
+    public GameStatus getStatus() { return this.status; }
+}
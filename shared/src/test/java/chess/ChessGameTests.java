@@ -0,0 +1,291 @@
+package chess;
+
+import com.google.gson.Gson;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class ChessGameTests {
+
+    private static final String START_FEN = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+    /*
+     * A board as the bitboard-free ChessBoard wrote it: an 8x8 array of pieces, a1 first.
+     * The position is after 1. e4 d5 2. exd5 Nf6 3. Nf3 Qxd5 4. Rg1 e5.
+     */
+    private static final String LEGACY_BOARD_JSON = "{\"board\":[[{\"pieceColor\":\"WHITE\",\"type\":\"ROOK\"},{\"pieceColor\":\"WHITE\",\"type\":\"KNIGHT\"},{\"pieceColor\":\"WHITE\",\"type\":\"BISHOP\"},{\"pieceColor\":\"WHITE\",\"type\":\"QUEEN\"},{\"pieceColor\":\"WHITE\",\"type\":\"KING\"},{\"pieceColor\":\"WHITE\",\"type\":\"BISHOP\"},{\"pieceColor\":\"WHITE\",\"type\":\"ROOK\"},null],"
+            + "[{\"pieceColor\":\"WHITE\",\"type\":\"PAWN\"},{\"pieceColor\":\"WHITE\",\"type\":\"PAWN\"},{\"pieceColor\":\"WHITE\",\"type\":\"PAWN\"},{\"pieceColor\":\"WHITE\",\"type\":\"PAWN\"},null,{\"pieceColor\":\"WHITE\",\"type\":\"PAWN\"},{\"pieceColor\":\"WHITE\",\"type\":\"PAWN\"},{\"pieceColor\":\"WHITE\",\"type\":\"PAWN\"}],"
+            + "[null,null,null,null,null,{\"pieceColor\":\"WHITE\",\"type\":\"KNIGHT\"},null,null],"
+            + "[null,null,null,null,null,null,null,null],"
+            + "[null,null,null,{\"pieceColor\":\"BLACK\",\"type\":\"QUEEN\"},{\"pieceColor\":\"BLACK\",\"type\":\"PAWN\"},null,null,null],"
+            + "[null,null,null,null,null,{\"pieceColor\":\"BLACK\",\"type\":\"KNIGHT\"},null,null],"
+            + "[{\"pieceColor\":\"BLACK\",\"type\":\"PAWN\"},{\"pieceColor\":\"BLACK\",\"type\":\"PAWN\"},{\"pieceColor\":\"BLACK\",\"type\":\"PAWN\"},null,null,{\"pieceColor\":\"BLACK\",\"type\":\"PAWN\"},{\"pieceColor\":\"BLACK\",\"type\":\"PAWN\"},{\"pieceColor\":\"BLACK\",\"type\":\"PAWN\"}],"
+            + "[{\"pieceColor\":\"BLACK\",\"type\":\"ROOK\"},{\"pieceColor\":\"BLACK\",\"type\":\"KNIGHT\"},{\"pieceColor\":\"BLACK\",\"type\":\"BISHOP\"},null,{\"pieceColor\":\"BLACK\",\"type\":\"KING\"},{\"pieceColor\":\"BLACK\",\"type\":\"BISHOP\"},null,{\"pieceColor\":\"BLACK\",\"type\":\"ROOK\"}]]}";
+
+    /*
+     * The game that board came from as the move-history ChessGame wrote it, and a new
+     * game from the same serializer.
+     */
+    private static final String LEGACY_GAME_JSON = "{\"currentTurn\":\"WHITE\",\"currentBoard\":" + LEGACY_BOARD_JSON + ",\"lastMove\":{\"startPosition\":{\"row\":7,\"col\":5},\"endPosition\":{\"row\":5,\"col\":5}}"
+            + ",\"lastMovePiece\":{\"pieceColor\":\"BLACK\",\"type\":\"PAWN\"}"
+            + ",\"movePositionCollection\":[{\"row\":8,\"col\":7},{\"row\":4,\"col\":5},{\"row\":2,\"col\":5},{\"row\":1,\"col\":7},{\"row\":1,\"col\":8},{\"row\":8,\"col\":4},{\"row\":7,\"col\":4},{\"row\":7,\"col\":5}]}";
+    private static final String LEGACY_START_JSON = "{\"currentTurn\":\"WHITE\",\"currentBoard\":{\"board\":["
+            + "[{\"pieceColor\":\"WHITE\",\"type\":\"ROOK\"},{\"pieceColor\":\"WHITE\",\"type\":\"KNIGHT\"},"
+            + "{\"pieceColor\":\"WHITE\",\"type\":\"BISHOP\"},{\"pieceColor\":\"WHITE\",\"type\":\"QUEEN\"},"
+            + "{\"pieceColor\":\"WHITE\",\"type\":\"KING\"},{\"pieceColor\":\"WHITE\",\"type\":\"BISHOP\"},"
+            + "{\"pieceColor\":\"WHITE\",\"type\":\"KNIGHT\"},{\"pieceColor\":\"WHITE\",\"type\":\"ROOK\"}],"
+            + "[{\"pieceColor\":\"WHITE\",\"type\":\"PAWN\"},{\"pieceColor\":\"WHITE\",\"type\":\"PAWN\"},"
+            + "{\"pieceColor\":\"WHITE\",\"type\":\"PAWN\"},{\"pieceColor\":\"WHITE\",\"type\":\"PAWN\"},"
+            + "{\"pieceColor\":\"WHITE\",\"type\":\"PAWN\"},{\"pieceColor\":\"WHITE\",\"type\":\"PAWN\"},"
+            + "{\"pieceColor\":\"WHITE\",\"type\":\"PAWN\"},{\"pieceColor\":\"WHITE\",\"type\":\"PAWN\"}],"
+            + "[null,null,null,null,null,null,null,null],[null,null,null,null,null,null,null,null],"
+            + "[null,null,null,null,null,null,null,null],[null,null,null,null,null,null,null,null],"
+            + "[{\"pieceColor\":\"BLACK\",\"type\":\"PAWN\"},{\"pieceColor\":\"BLACK\",\"type\":\"PAWN\"},"
+            + "{\"pieceColor\":\"BLACK\",\"type\":\"PAWN\"},{\"pieceColor\":\"BLACK\",\"type\":\"PAWN\"},"
+            + "{\"pieceColor\":\"BLACK\",\"type\":\"PAWN\"},{\"pieceColor\":\"BLACK\",\"type\":\"PAWN\"},"
+            + "{\"pieceColor\":\"BLACK\",\"type\":\"PAWN\"},{\"pieceColor\":\"BLACK\",\"type\":\"PAWN\"}],"
+            + "[{\"pieceColor\":\"BLACK\",\"type\":\"ROOK\"},{\"pieceColor\":\"BLACK\",\"type\":\"KNIGHT\"},"
+            + "{\"pieceColor\":\"BLACK\",\"type\":\"BISHOP\"},{\"pieceColor\":\"BLACK\",\"type\":\"QUEEN\"},"
+            + "{\"pieceColor\":\"BLACK\",\"type\":\"KING\"},{\"pieceColor\":\"BLACK\",\"type\":\"BISHOP\"},"
+            + "{\"pieceColor\":\"BLACK\",\"type\":\"KNIGHT\"},{\"pieceColor\":\"BLACK\",\"type\":\"ROOK\"}]]},"
+            + "\"lastMove\":{},\"lastMovePiece\":{},\"movePositionCollection\":[]}";
+
+    @Test
+    @DisplayName("Position Key Restored By Unmake")
+    public void positionKeyRestoredByUnmake() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        long startKey = game.getPositionKey();
+        game.makeMove(move(2, 5, 4, 5));
+        Assertions.assertNotEquals(startKey, game.getPositionKey(), "getPositionKey() did not change after a move");
+        game.unmakeMove();
+        Assertions.assertEquals(startKey, game.getPositionKey(), "getPositionKey() not restored by unmakeMove()");
+    }
+
+    @Test
+    @DisplayName("Unmake Restores Castling")
+    public void unmakeRestoresCastling() throws InvalidMoveException {
+        String white = "r3k2r/8/8/8/8/8/8/R3K2R w KQkq - 3 10";
+        assertUnmakeRestores(white, move(1, 5, 1, 7));
+        assertUnmakeRestores(white, move(1, 5, 1, 3));
+        String black = "r3k2r/8/8/8/8/8/8/R3K2R b KQkq - 3 10";
+        assertUnmakeRestores(black, move(8, 5, 8, 7));
+        assertUnmakeRestores(black, move(8, 5, 8, 3));
+    }
+
+    @Test
+    @DisplayName("Unmake Restores En Passant")
+    public void unmakeRestoresEnPassant() throws InvalidMoveException {
+        assertUnmakeRestores("4k3/8/8/3pP3/8/8/8/4K3 w - d6 0 2", move(5, 5, 6, 4));
+        assertUnmakeRestores("4k3/8/8/8/3pP3/8/8/4K3 b - e3 0 2", move(4, 4, 3, 5));
+    }
+
+    @Test
+    @DisplayName("Unmake Restores Promotion")
+    public void unmakeRestoresPromotion() throws InvalidMoveException {
+        String fen = "1r2k3/P7/8/8/8/8/8/4K3 w - - 4 30";
+        assertUnmakeRestores(fen, new ChessMove(new ChessPosition(7, 1), new ChessPosition(8, 1),
+                ChessPiece.PieceType.QUEEN));
+        assertUnmakeRestores(fen, new ChessMove(new ChessPosition(7, 1), new ChessPosition(8, 2),
+                ChessPiece.PieceType.KNIGHT));
+    }
+
+    @Test
+    @DisplayName("Unmake Restores Castling Rights Lost To A Capture")
+    public void unmakeRestoresCastlingRightsLostToCapture() throws InvalidMoveException {
+        assertUnmakeRestores("r3k2r/8/8/8/8/8/8/R3K2R w KQkq - 0 1", move(1, 1, 8, 1));
+        assertUnmakeRestores("r3k2r/8/8/8/8/8/8/R3K2R b KQkq - 0 1", move(8, 8, 1, 8));
+    }
+
+    @Test
+    @DisplayName("Transpositions Share Position Key")
+    public void transpositionsSharePositionKey() throws InvalidMoveException {
+        ChessGame first = new ChessGame();
+        first.makeMove(move(1, 2, 3, 3));
+        first.makeMove(move(8, 2, 6, 3));
+        first.makeMove(move(1, 7, 3, 6));
+
+        ChessGame second = new ChessGame();
+        second.makeMove(move(1, 7, 3, 6));
+        second.makeMove(move(8, 2, 6, 3));
+        second.makeMove(move(1, 2, 3, 3));
+
+        Assertions.assertEquals(first.getPositionKey(), second.getPositionKey(),
+                "Same position reached by different move orders has different keys");
+        Assertions.assertEquals(first.getBoard().hashCode(), second.getBoard().hashCode(),
+                "Equal boards have different hash codes");
+    }
+
+    @Test
+    @DisplayName("Position Key Includes Side To Move")
+    public void positionKeyIncludesSideToMove() {
+        ChessGame game = new ChessGame();
+        long whiteKey = game.getPositionKey();
+        game.setTeamTurn(ChessGame.TeamColor.BLACK);
+        Assertions.assertNotEquals(whiteKey, game.getPositionKey(), "Side to move is not part of the key");
+    }
+
+    @Test
+    @DisplayName("Threefold Repetition")
+    public void threefoldRepetition() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        for (int i = 0; i < 2; i++) {
+            Assertions.assertFalse(game.isThreefoldRepetition(), "Repetition reported too early");
+            game.makeMove(move(1, 7, 3, 6));
+            game.makeMove(move(8, 7, 6, 6));
+            game.makeMove(move(3, 6, 1, 7));
+            game.makeMove(move(6, 6, 8, 7));
+        }
+        Assertions.assertTrue(game.isThreefoldRepetition(), "Third occurrence of the start position not detected");
+    }
+
+    @Test
+    @DisplayName("Serialized Game Omits Legacy Fields")
+    public void serializedGameOmitsLegacyFields() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        game.makeMove(move(2, 5, 4, 5));
+        String json = new Gson().toJson(game);
+        Assertions.assertFalse(json.contains("movePositionCollection"), "Moved-from squares still serialized");
+        Assertions.assertFalse(json.contains("lastMove"), "Last move still serialized");
+        Assertions.assertEquals(game, new Gson().fromJson(json, ChessGame.class), "Game changed by a JSON round trip");
+    }
+
+    @Test
+    @DisplayName("Legacy Board JSON Read")
+    public void legacyBoardJsonRead() {
+        ChessBoard board = new Gson().fromJson(LEGACY_BOARD_JSON, ChessBoard.class);
+        Assertions.assertEquals(ChessBoard.fromFen("rnb1kb1r/ppp2ppp/5n2/3qp3/8/5N2/PPPP1PPP/RNBQKBR1"), board,
+                "Pieces of a legacy board not placed");
+        Assertions.assertEquals(new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING),
+                board.getPiece(new ChessPosition(1, 5)), "King missing from a legacy board");
+
+        String json = new Gson().toJson(board);
+        Assertions.assertFalse(json.contains("\"board\""), "Legacy board written back in the old form");
+        Assertions.assertEquals(board, new Gson().fromJson(json, ChessBoard.class), "Board changed by a JSON round trip");
+    }
+
+    @Test
+    @DisplayName("Legacy Game JSON Upgraded")
+    public void legacyGameJsonUpgraded() {
+        ChessGame upgraded = new Gson().fromJson(LEGACY_GAME_JSON, ChessGame.class);
+        Assertions.assertEquals(ChessGame.fromFen("rnb1kb1r/ppp2ppp/5n2/3qp3/8/5N2/PPPP1PPP/RNBQKBR1 w Qkq e6 0 1"),
+                upgraded, "Legacy game not upgraded to the same state");
+        Assertions.assertFalse(upgraded.whiteHasKingSideCastlingRight(), "Rook move in legacy game not recovered");
+        Assertions.assertTrue(upgraded.whiteHasQueenSideCastlingRight(), "White queen side castling right lost");
+        Assertions.assertTrue(upgraded.blackHasCastlingRights(), "Black castling rights lost");
+        Assertions.assertNotNull(upgraded.validMoves(new ChessPosition(1, 5)), "No moves for the king of a legacy game");
+
+        ChessGame start = new Gson().fromJson(LEGACY_START_JSON, ChessGame.class);
+        Assertions.assertEquals(new ChessGame(), start, "Legacy start position not upgraded");
+    }
+
+    @Test
+    @DisplayName("Castling Rights Lost When Both Rooks Move")
+    public void castlingRightsLostWhenBothRooksMove() throws InvalidMoveException {
+        ChessGame game = ChessGame.fromFen("r3k2r/8/8/8/8/8/8/R3K2R w KQkq - 0 1");
+        game.makeMove(move(1, 1, 2, 1));
+        game.makeMove(move(8, 1, 7, 1));
+        Assertions.assertTrue(game.whiteHasCastlingRights(), "King side right lost with the queen side rook");
+        game.makeMove(move(1, 8, 2, 8));
+        Assertions.assertFalse(game.whiteHasCastlingRights(), "Castling rights kept after both rooks moved");
+        Assertions.assertTrue(game.blackHasKingSideCastlingRight(), "Black king side right lost");
+        Assertions.assertFalse(game.blackHasQueenSideCastlingRight(), "Black queen side right kept after its rook moved");
+
+        Assertions.assertFalse(game.whiteKingHasNotMoved(), "Original accessor disagrees with the castling rights");
+        Assertions.assertFalse(game.whiteKingSideRookHasNotMoved(), "Original accessor disagrees with the castling rights");
+        Assertions.assertTrue(game.blackKingHasNotMoved(), "Original accessor disagrees with the castling rights");
+        Assertions.assertTrue(game.blackKingSideRookHasNotMoved(), "Original accessor disagrees with the castling rights");
+        Assertions.assertFalse(game.blackQueenSideRookHasNotMoved(), "Original accessor disagrees with the castling rights");
+    }
+
+    @Test
+    @DisplayName("Square Attacked Through Opened Line")
+    public void squareAttackedThroughOpenedLine() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        ChessPosition f7 = new ChessPosition(7, 6);
+        Assertions.assertTrue(game.isSquareAttacked(new ChessPosition(3, 6), ChessGame.TeamColor.WHITE),
+                "Pawn and knight attacks on f3 not seen");
+        Assertions.assertFalse(game.isSquareAttacked(f7, ChessGame.TeamColor.WHITE), "f7 attacked at the start");
+        game.makeMove(move(2, 5, 4, 5));
+        game.makeMove(move(7, 1, 6, 1));
+        game.makeMove(move(1, 6, 4, 3));
+        Assertions.assertTrue(game.isSquareAttacked(f7, ChessGame.TeamColor.WHITE), "Bishop attack on f7 not seen");
+        Assertions.assertFalse(game.isSquareAttacked(new ChessPosition(5, 1), ChessGame.TeamColor.WHITE),
+                "Square beyond the bishop's reach reported attacked");
+    }
+
+    @Test
+    @DisplayName("FEN Of Start Position")
+    public void fenOfStartPosition() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        Assertions.assertEquals(START_FEN, game.toFen(), "Wrong FEN for the start position");
+        Assertions.assertEquals(game, ChessGame.fromFen(START_FEN), "Start position FEN not read back");
+
+        game.makeMove(move(2, 5, 4, 5));
+        Assertions.assertEquals("rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1", game.toFen(),
+                "Wrong FEN after a double pawn push");
+        game.makeMove(move(8, 7, 6, 6));
+        game.makeMove(move(1, 5, 2, 5));
+        Assertions.assertEquals("rnbqkb1r/pppppppp/5n2/8/4P3/8/PPPPKPPP/RNBQ1BNR b kq - 2 2", game.toFen(),
+                "Wrong FEN after a king move");
+        Assertions.assertEquals(game.getBoard(), ChessBoard.fromFen(game.toFen()), "Board not read back from FEN");
+    }
+
+    @Test
+    @DisplayName("FEN Round Trip")
+    public void fenRoundTrip() {
+        String fen = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R b Kq a3 3 17";
+        Assertions.assertEquals(fen, ChessGame.fromFen(fen).toFen(), "FEN changed by a round trip");
+        Assertions.assertEquals("8/8/8/8/8/8/8/K6k w - - 0 1", ChessGame.fromFen("8/8/8/8/8/8/8/K6k w - -").toFen(),
+                "Missing move counters not defaulted");
+    }
+
+    @Test
+    @DisplayName("Malformed FEN Rejected")
+    public void malformedFenRejected() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> ChessGame.fromFen("8/8/8/8/8/8/8 w - - 0 1"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> ChessGame.fromFen("8/8/8/8/8/8/8/9 w - - 0 1"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> ChessGame.fromFen("8/8/8/8/8/8/8/8 x - - 0 1"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> ChessGame.fromFen("8/8/8/8/8/8/8/8 w X - 0 1"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> ChessGame.fromFen("8/8/8/8/8/8/8/8 w - e4 0 1"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> ChessGame.fromFen("8/8/8/8/8/8/8/8 w - - x 1"));
+    }
+
+    @Test
+    @DisplayName("Off Board Squares Rejected")
+    public void offBoardSquaresRejected() {
+        String fen = "4k3/8/8/8/8/8/8/R3K3 w - - 0 1";
+        ChessGame game = ChessGame.fromFen(fen);
+        ChessBoard board = game.getBoard();
+        Assertions.assertNull(board.getPiece(new ChessPosition(9, 1)), "Row 9 read as another square");
+        Assertions.assertNull(board.getPiece(new ChessPosition(1, 0)), "Column 0 read as another square");
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> board.addPiece(new ChessPosition(0, 5), new ChessPiece(ChessGame.TeamColor.WHITE,
+                        ChessPiece.PieceType.QUEEN)), "Piece added off the board");
+        Assertions.assertNull(game.validMoves(new ChessPosition(0, 5)), "Moves found for an off-board square");
+
+        Assertions.assertThrows(InvalidMoveException.class, () -> game.makeMove(move(9, 1, 1, 2)),
+                "Move from an off-board square played");
+        Assertions.assertThrows(InvalidMoveException.class, () -> game.makeMove(move(1, 1, 1, 9)),
+                "Move to an off-board square played");
+        Assertions.assertThrows(InvalidMoveException.class, () -> game.makeMove(move(1, 1, 0, 1)),
+                "Move to an off-board square played");
+        Assertions.assertEquals(fen, game.toFen(), "Rejected moves changed the game");
+    }
+
+    private static void assertUnmakeRestores(String fen, ChessMove move) throws InvalidMoveException {
+        ChessGame game = ChessGame.fromFen(fen);
+        long key = game.getPositionKey();
+        game.makeMove(move);
+        Assertions.assertNotEquals(fen, game.toFen(), move + " not played from " + fen);
+        game.unmakeMove();
+        Assertions.assertEquals(fen, game.toFen(), "unmakeMove() of " + move + " did not restore " + fen);
+        Assertions.assertEquals(key, game.getPositionKey(),
+                "unmakeMove() of " + move + " did not restore the position key of " + fen);
+        Assertions.assertEquals(key, ChessGame.fromFen(game.toFen()).getPositionKey(),
+                "Position key after unmakeMove() differs from a fresh one");
+    }
+
+    private static ChessMove move(int startRow, int startColumn, int endRow, int endColumn) {
+        return new ChessMove(new ChessPosition(startRow, startColumn), new ChessPosition(endRow, endColumn), null);
+    }
+}
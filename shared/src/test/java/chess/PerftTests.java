@@ -0,0 +1,122 @@
+package chess;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Node counts from the standard perft positions published on the Chess Programming Wiki.
+ * The deepest counts take seconds each, so they are tagged slow and only run with the
+ * slow profile: {@code mvn -pl shared test -Pslow}.
+ */
+public class PerftTests {
+
+    @Test
+    @DisplayName("Perft Start Position")
+    public void startPosition() {
+        ChessGame game = new ChessGame();
+        assertPerft(game, 20, 400, 8902, 197281, 4865609);
+    }
+
+    @Test
+    @DisplayName("Perft Kiwipete")
+    public void kiwipete() {
+        ChessGame game = ChessGame.fromFen("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1");
+        assertPerft(game, 48, 2039, 97862, 4085603);
+    }
+
+    @Test
+    @DisplayName("Perft Position 3")
+    public void position3() {
+        ChessGame game = ChessGame.fromFen("8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1");
+        assertPerft(game, 14, 191, 2812, 43238);
+    }
+
+    @Test
+    @DisplayName("Perft Position 4")
+    public void position4() {
+        ChessGame game = ChessGame.fromFen("r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1");
+        assertPerft(game, 6, 264, 9467);
+    }
+
+    @Test
+    @DisplayName("Perft Position 5")
+    public void position5() {
+        ChessGame game = ChessGame.fromFen("rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8");
+        assertPerft(game, 44, 1486, 62379);
+    }
+
+    @Test
+    @DisplayName("Perft Position 6")
+    public void position6() {
+        ChessGame game = ChessGame.fromFen("r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10");
+        assertPerft(game, 46, 2079, 89890);
+    }
+
+    @Test
+    @Tag("slow")
+    @DisplayName("Perft Start Position Depth 6")
+    public void startPositionDeep() {
+        Assertions.assertEquals(119060324, Perft.perft(new ChessGame(), 6), "Wrong perft node count at depth 6");
+    }
+
+    @Test
+    @Tag("slow")
+    @DisplayName("Perft Kiwipete Depth 5")
+    public void kiwipeteDeep() {
+        ChessGame game = ChessGame.fromFen("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1");
+        Assertions.assertEquals(193690690, Perft.perft(game, 5), "Wrong perft node count at depth 5");
+    }
+
+    @Test
+    @Tag("slow")
+    @DisplayName("Perft Position 3 Depth 6")
+    public void position3Deep() {
+        ChessGame game = ChessGame.fromFen("8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1");
+        Assertions.assertEquals(674624, Perft.perft(game, 5), "Wrong perft node count at depth 5");
+        Assertions.assertEquals(11030083, Perft.perft(game, 6), "Wrong perft node count at depth 6");
+    }
+
+    @Test
+    @Tag("slow")
+    @DisplayName("Perft Position 4 Depth 5")
+    public void position4Deep() {
+        ChessGame game = ChessGame.fromFen("r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1");
+        Assertions.assertEquals(422333, Perft.perft(game, 4), "Wrong perft node count at depth 4");
+        Assertions.assertEquals(15833292, Perft.perft(game, 5), "Wrong perft node count at depth 5");
+    }
+
+    @Test
+    @Tag("slow")
+    @DisplayName("Perft Position 5 Depth 5")
+    public void position5Deep() {
+        ChessGame game = ChessGame.fromFen("rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8");
+        Assertions.assertEquals(2103487, Perft.perft(game, 4), "Wrong perft node count at depth 4");
+        Assertions.assertEquals(89941194, Perft.perft(game, 5), "Wrong perft node count at depth 5");
+    }
+
+    @Test
+    @Tag("slow")
+    @DisplayName("Perft Position 6 Depth 5")
+    public void position6Deep() {
+        ChessGame game = ChessGame.fromFen("r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10");
+        Assertions.assertEquals(3894594, Perft.perft(game, 4), "Wrong perft node count at depth 4");
+        Assertions.assertEquals(164075551, Perft.perft(game, 5), "Wrong perft node count at depth 5");
+    }
+
+    @Test
+    @DisplayName("Perft Leaves Game Unchanged")
+    public void perftRestoresGame() {
+        ChessGame game = new ChessGame();
+        Perft.perft(game, 3);
+        Assertions.assertEquals(new ChessGame(), game, "perft() did not restore the game it searched");
+    }
+
+    private static void assertPerft(ChessGame game, long... expected) {
+        for (int depth = 1; depth <= expected.length; depth++) {
+            Assertions.assertEquals(expected[depth - 1], Perft.perft(game, depth),
+                    String.format("Wrong perft node count at depth %d", depth));
+        }
+    }
+}
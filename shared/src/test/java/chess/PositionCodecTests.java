@@ -0,0 +1,57 @@
+package chess;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+
+public class PositionCodecTests {
+
+    @Test
+    @DisplayName("Start Position Round Trip")
+    public void startPositionRoundTrip() {
+        ChessGame game = new ChessGame();
+        byte[] bytes = PositionCodec.encode(game);
+        Assertions.assertEquals(PositionCodec.SIZE, bytes.length, "Encoded position has the wrong size");
+        Assertions.assertEquals(game, PositionCodec.decode(bytes), "Start position changed by a round trip");
+    }
+
+    @Test
+    @DisplayName("Game State Round Trip")
+    public void gameStateRoundTrip() throws InvalidMoveException {
+        ChessGame game = ChessGame.fromFen("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w Kq - 3 17");
+        game.makeMove(new ChessMove(new ChessPosition(2, 1), new ChessPosition(4, 1), null));
+        ChessGame decoded = PositionCodec.decode(PositionCodec.encode(game));
+        Assertions.assertEquals(game, decoded, "Game changed by a round trip");
+        Assertions.assertEquals(game.toFen(), decoded.toFen(), "FEN changed by a round trip");
+
+        game.setTeamTurn(ChessGame.TeamColor.GAME_OVER);
+        Assertions.assertEquals(ChessGame.TeamColor.GAME_OVER, PositionCodec.decode(PositionCodec.encode(game)).getTeamTurn(),
+                "Finished game not preserved");
+    }
+
+    @Test
+    @DisplayName("Reused Buffer")
+    public void reusedBuffer() {
+        ByteBuffer buffer = ByteBuffer.allocate(PositionCodec.SIZE * 2);
+        ChessGame first = new ChessGame();
+        ChessGame second = ChessGame.fromFen("8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 b - - 0 1");
+        PositionCodec.encode(first, buffer);
+        PositionCodec.encode(second, buffer);
+        Assertions.assertEquals(PositionCodec.SIZE * 2, buffer.position(), "Encoding did not advance the buffer");
+
+        buffer.flip();
+        Assertions.assertEquals(first, PositionCodec.decode(buffer), "First position not decoded");
+        Assertions.assertEquals(second, PositionCodec.decode(buffer), "Second position not decoded");
+        Assertions.assertFalse(buffer.hasRemaining(), "Decoding did not consume the positions");
+    }
+
+    @Test
+    @DisplayName("Corrupt Position Rejected")
+    public void corruptPositionRejected() {
+        byte[] bytes = PositionCodec.encode(new ChessGame());
+        bytes[8] = (byte) 0xFF;
+        Assertions.assertThrows(IllegalArgumentException.class, () -> PositionCodec.decode(bytes));
+    }
+}